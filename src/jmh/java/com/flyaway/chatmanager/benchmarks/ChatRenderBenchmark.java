@@ -0,0 +1,89 @@
+package com.flyaway.chatmanager.benchmarks;
+
+import com.flyaway.chatmanager.managers.ChatBenchmarkFixture;
+import com.flyaway.chatmanager.managers.ChatMessageRenderer;
+import com.flyaway.chatmanager.managers.MessageManager;
+import com.flyaway.chatmanager.managers.PlaceholderProcessor;
+import com.flyaway.chatmanager.managers.RenderedMessage;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячий путь чата: отрисовка, фильтр цветов, плейсхолдеры и рассылка по радиусу.
+ * Сообщения — типичные строки из чата сервера: короткая реплика, упоминание,
+ * плейсхолдеры с командой и длинное объявление.
+ * Запуск: ./gradlew jmh (профилировщик gc показывает скорость аллокаций)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChatRenderBenchmark {
+
+    @Param({"10", "100", "500", "2000"})
+    public int players;
+
+    @Param({"short", "mention", "placeholders", "long"})
+    public String message;
+
+    private ChatMessageRenderer renderer;
+    private PlaceholderProcessor placeholderProcessor;
+    private MessageManager messageManager;
+    private Player sender;
+    private String text;
+    private Component parsed;
+    private RenderedMessage rendered;
+    private int radius;
+
+    @Setup
+    public void setup() {
+        ChatBenchmarkFixture fixture = ChatBenchmarkFixture.create(players, 2000,
+                Set.of("chatmanager.color.basic", "chatmanager.format.bold"));
+        renderer = fixture.getPlugin().getChatMessageRenderer();
+        placeholderProcessor = fixture.getPlugin().getPlaceholderProcessor();
+        messageManager = fixture.getPlugin().getMessageManager();
+        radius = fixture.getPlugin().getConfigManager().getLocalChatRadius();
+        sender = fixture.getPlayers().get(0);
+
+        String mentioned = fixture.getPlayers().get(players - 1).getName();
+        text = switch (message) {
+            case "short" -> "всем привет";
+            case "mention" -> "@" + mentioned + " го на спавн, там ивент начинается";
+            case "placeholders" -> "у меня [money] и [coins], я на [pos], заходите [/warp shop]";
+            default -> "&aПродаю &lалмазы&r и незерит недорого, " + mentioned
+                    + " уже купил. Цены смотрите на [site], пишите в лс или [/trade " + sender.getName()
+                    + "], пинг у меня [ping], так что отвечу быстро. Скидки постоянным покупателям!";
+        };
+
+        parsed = messageManager.formatMessage(text);
+        rendered = new RenderedMessage(renderer.renderLocaleMessage(sender, text, false));
+    }
+
+    @Benchmark
+    public Component renderLocaleMessage() {
+        return renderer.renderLocaleMessage(sender, text, false);
+    }
+
+    @Benchmark
+    public Component renderMessage() {
+        return renderer.renderMessage(sender, "<gold>» <white>" + text);
+    }
+
+    @Benchmark
+    public String applyColorPermissions() {
+        return renderer.applyColorPermissions(sender, text);
+    }
+
+    @Benchmark
+    public Component processAllPlaceholders() {
+        return placeholderProcessor.processAllPlaceholders(sender, parsed);
+    }
+
+    @Benchmark
+    public void sendMessageToPlayersInRadius() {
+        messageManager.sendMessageToPlayersInRadius(sender, rendered, radius);
+    }
+}
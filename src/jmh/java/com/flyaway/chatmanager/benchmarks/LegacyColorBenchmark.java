@@ -0,0 +1,56 @@
+package com.flyaway.chatmanager.benchmarks;
+
+import com.flyaway.chatmanager.utils.LegacyColorTranslator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение перевода legacy-цветов: прежний цикл из 22 replace и однопроходный переводчик.
+ * Запуск: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LegacyColorBenchmark {
+
+    private final Map<String, String> legacyColors = new HashMap<>();
+
+    @Param({"plain", "colored", "long"})
+    public String kind;
+
+    private String message;
+
+    @Setup
+    public void setup() {
+        String[] codes = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "a", "b", "c", "d", "e", "f", "l", "o", "n", "m", "k", "r"};
+        String[] tags = {"black", "dark_blue", "dark_green", "dark_aqua", "dark_red", "dark_purple", "gold", "gray", "dark_gray",
+                "blue", "green", "aqua", "red", "light_purple", "yellow", "white", "bold", "italic", "underlined",
+                "strikethrough", "obfuscated", "reset"};
+        for (int i = 0; i < codes.length; i++) {
+            legacyColors.put("&" + codes[i], "<" + tags[i] + ">");
+        }
+
+        message = switch (kind) {
+            case "plain" -> "Всем привет, кто пойдёт на спавн через пять минут?";
+            case "colored" -> "&aВсем &lпривет&r, кто пойдёт на &6спавн&r через &#ff8800пять минут?";
+            default -> "&aВсем &lпривет&r, кто пойдёт на &6спавн&r через пять минут? ".repeat(8);
+        };
+    }
+
+    @Benchmark
+    public String replaceLoop() {
+        String result = message;
+        for (Map.Entry<String, String> e : legacyColors.entrySet()) {
+            result = result.replace(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return LegacyColorTranslator.translate(message);
+    }
+}
@@ -0,0 +1,84 @@
+package com.flyaway.chatmanager.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Лёгкие заглушки интерфейсов Bukkit/LuckPerms для бенчмарков.
+ * Методы задаются по имени; остальные возвращают значения по умолчанию (null, 0, false),
+ * а equals/hashCode сравнивают по ссылке, как у настоящих игроков и миров.
+ */
+public final class StandIns {
+
+    // Сколько сообщений получили заглушки игроков (чтобы JIT не выкинул доставку)
+    public static final LongAdder DELIVERED = new LongAdder();
+
+    private StandIns() {
+    }
+
+    public static <T> T proxy(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        Object instance = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            String name = method.getName();
+            Function<Object[], Object> handler = methods.get(name);
+            if (handler != null) return handler.apply(args);
+
+            return switch (name) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "toString" -> type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                default -> defaultValue(method);
+            };
+        });
+        return type.cast(instance);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+
+    /**
+     * Записывает значение в поле объекта (или его родителей); отсутствующее поле пропускается
+     */
+    public static void setField(Object target, String name, Object value) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException ignored) {
+            } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                // Тип поля отличается в этой версии API — значение не нужно бенчмарку
+                return;
+            }
+        }
+    }
+
+    /**
+     * Экземпляр класса без вызова конструктора (JavaPlugin нельзя создать вне сервера)
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T allocate(Class<T> type) {
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            return (T) unsafe.getClass().getMethod("allocateInstance", Class.class).invoke(unsafe, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Не удалось создать " + type.getName(), e);
+        }
+    }
+}
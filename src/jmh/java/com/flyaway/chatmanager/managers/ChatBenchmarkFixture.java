@@ -0,0 +1,208 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.ChatManagerPlugin;
+import com.flyaway.chatmanager.benchmarks.StandIns;
+import net.kyori.adventure.text.Component;
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.cacheddata.CachedMetaData;
+import net.luckperms.api.event.EventBus;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.platform.PlayerAdapter;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Собирает менеджеры плагина вне сервера: игроки, сервер, LuckPerms и PlaceholderAPI заменены заглушками,
+ * конфигурация — config.yml плагина по умолчанию.
+ * Лежит в пакете managers, чтобы создать ConfigSnapshot и PlaceholderApiCache с подменённым PAPI.
+ */
+public final class ChatBenchmarkFixture {
+
+    private static final Logger LOGGER = Logger.getLogger("ChatManager-Benchmark");
+    // Игроки текущего набора; сервер-заглушка создаётся один раз на JVM
+    private static volatile List<Player> online = List.of();
+    private static Server server;
+
+    private final ChatManagerPlugin plugin;
+    private final List<Player> players;
+
+    private ChatBenchmarkFixture(ChatManagerPlugin plugin, List<Player> players) {
+        this.plugin = plugin;
+        this.players = players;
+    }
+
+    /**
+     * @param playerCount Количество игроков онлайн
+     * @param areaSize    Сторона квадрата, по которому случайно расставлены игроки
+     * @param permissions Права каждого игрока
+     */
+    public static synchronized ChatBenchmarkFixture create(int playerCount, int areaSize, Set<String> permissions) {
+        installServer();
+        installLuckPerms();
+
+        World world = StandIns.proxy(World.class, Map.of(
+                "getName", args -> "world",
+                "getUID", args -> UUID.nameUUIDFromBytes("world".getBytes(StandardCharsets.UTF_8))
+        ));
+        Random random = new Random(42);
+        List<Player> players = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            Location location = new Location(world, random.nextInt(areaSize), 64, random.nextInt(areaSize));
+            players.add(player("Player" + i, location, permissions));
+        }
+        online = List.copyOf(players);
+
+        ChatManagerPlugin plugin = StandIns.allocate(ChatManagerPlugin.class);
+        StandIns.setField(plugin, "server", server);
+        StandIns.setField(plugin, "logger", LOGGER);
+
+        ConfigManager configManager = new ConfigManager(plugin);
+        StandIns.setField(configManager, "snapshot", new ConfigSnapshot(loadDefaultConfig(), LOGGER));
+        StandIns.setField(plugin, "configManager", configManager);
+        StandIns.setField(plugin, "chatMetrics", new ChatMetrics(plugin));
+        StandIns.setField(plugin, "chatRateLimiter", new ChatRateLimiter(plugin));
+
+        PlayerTracker playerTracker = new PlayerTracker(plugin);
+        playerTracker.load();
+        StandIns.setField(plugin, "playerTracker", playerTracker);
+        LocalChatIndex localChatIndex = new LocalChatIndex();
+        localChatIndex.load();
+        StandIns.setField(plugin, "localChatIndex", localChatIndex);
+
+        StandIns.setField(plugin, "messageManager", new MessageManager(plugin));
+        StandIns.setField(plugin, "mentionManager", new MentionManager(plugin));
+        StandIns.setField(plugin, "placeholderApiCache", new PlaceholderApiCache(plugin, ChatBenchmarkFixture::resolvePlaceholders));
+        StandIns.setField(plugin, "placeholderProcessor", new PlaceholderProcessor(plugin));
+        StandIns.setField(plugin, "playerMetaCache", new PlayerMetaCache(plugin));
+        StandIns.setField(plugin, "chatMessageRenderer", new ChatMessageRenderer(plugin));
+
+        return new ChatBenchmarkFixture(plugin, players);
+    }
+
+    public ChatManagerPlugin getPlugin() {
+        return plugin;
+    }
+
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    private static Player player(String name, Location location, Set<String> permissions) {
+        UUID uuid = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+        Component displayName = Component.text(name);
+        return StandIns.proxy(Player.class, Map.of(
+                "getUniqueId", args -> uuid,
+                "getName", args -> name,
+                "displayName", args -> displayName,
+                "getLocation", args -> location,
+                "getWorld", args -> location.getWorld(),
+                "isOnline", args -> true,
+                "hasPermission", args -> args[0] instanceof String permission && permissions.contains(permission),
+                "sendMessage", args -> {
+                    StandIns.DELIVERED.increment();
+                    return null;
+                }
+        ));
+    }
+
+    private static void installServer() {
+        if (server != null) return;
+
+        Plugin present = StandIns.proxy(Plugin.class, Map.of());
+        PluginManager pluginManager = StandIns.proxy(PluginManager.class, Map.of(
+                // PlaceholderAPI подменяется отдельно, через PlaceholderApiCache
+                "getPlugin", args -> "LuckPerms".equals(args[0]) ? present : null
+        ));
+        server = StandIns.proxy(Server.class, Map.of(
+                "getPluginManager", args -> pluginManager,
+                "getOnlinePlayers", args -> online,
+                "getLogger", args -> LOGGER,
+                "getName", args -> "Benchmark",
+                "getVersion", args -> "benchmark",
+                "getBukkitVersion", args -> "benchmark",
+                "getMinecraftVersion", args -> "1.21.10",
+                "sendMessage", args -> {
+                    for (Player player : online) {
+                        player.sendMessage((Component) args[0]);
+                    }
+                    return null;
+                }
+        ));
+        Bukkit.setServer(server);
+    }
+
+    // Мета-данные как у типичного игрока с префиксом группы
+    private static void installLuckPerms() {
+        CachedMetaData meta = StandIns.proxy(CachedMetaData.class, Map.of(
+                "getPrefix", args -> "<gray>[<green>Игрок</green>]</gray> ",
+                "getSuffix", args -> "",
+                "getMetaValue", args -> "username-color".equals(args[0]) ? "<white>" : null
+        ));
+        PlayerAdapter<?> adapter = StandIns.proxy(PlayerAdapter.class, Map.of(
+                "getMetaData", args -> meta
+        ));
+        EventSubscription<?> subscription = StandIns.proxy(EventSubscription.class, Map.of());
+        EventBus eventBus = StandIns.proxy(EventBus.class, Map.of(
+                "subscribe", args -> subscription
+        ));
+        LuckPerms luckPerms = StandIns.proxy(LuckPerms.class, Map.of(
+                "getEventBus", args -> eventBus,
+                "getPlayerAdapter", args -> adapter
+        ));
+
+        try {
+            Method register = LuckPermsProvider.class.getDeclaredMethod("register", LuckPerms.class);
+            register.setAccessible(true);
+            register.invoke(null, luckPerms);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Не удалось подменить LuckPerms", e);
+        }
+    }
+
+    private static YamlConfiguration loadDefaultConfig() {
+        try (Reader reader = new InputStreamReader(
+                Objects.requireNonNull(ChatManagerPlugin.class.getClassLoader().getResourceAsStream("config.yml")),
+                StandardCharsets.UTF_8)) {
+            return YamlConfiguration.loadConfiguration(reader);
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось прочитать config.yml", e);
+        }
+    }
+
+    // PlaceholderAPI: каждое %значение% заменяется коротким числом, как большинство реальных плейсхолдеров
+    private static String resolvePlaceholders(Player player, String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            int open = text.indexOf('%', i);
+            int close = open < 0 ? -1 : text.indexOf('%', open + 1);
+            if (close < 0) {
+                result.append(text, i, text.length());
+                break;
+            }
+            result.append(text, i, open).append(close - open);
+            i = close + 1;
+        }
+        return result.toString();
+    }
+}
@@ -19,10 +19,23 @@ public class ChatManagerPlugin extends JavaPlugin {
     private LanguageManager languageManager;
     private MessageManager messageManager;
     private PlayerTracker playerTracker;
+    private LocalChatIndex localChatIndex;
     private MentionManager mentionManager;
+    private ChatPipeline chatPipeline;
+    private PlaceholderApiCache placeholderApiCache;
+    private PlayerMetaCache playerMetaCache;
+    private ChatMetrics chatMetrics;
+    private ChatRateLimiter chatRateLimiter;
+    private ChatBridge chatBridge;
+    private ChatHistory chatHistory;
+    private ChatLogWriter chatLogWriter;
 
     // Ссылка на задачу очистки инвентарей
     private int cleanupTaskId = -1;
+    // Ссылка на задачу сверки индекса локального чата
+    private int indexResyncTaskId = -1;
+    // Ссылка на задачу выгрузки метрик
+    private int metricsExportTaskId = -1;
 
     @Override
     public void onEnable() {
@@ -32,13 +45,25 @@ public class ChatManagerPlugin extends JavaPlugin {
         this.configManager = new ConfigManager(this);
         // Загрузка конфигурации
         configManager.loadConfig();
+        this.chatMetrics = new ChatMetrics(this);
+        this.chatRateLimiter = new ChatRateLimiter(this);
+        this.chatHistory = new ChatHistory(this);
+        this.chatLogWriter = new ChatLogWriter(this);
+        chatLogWriter.start();
         this.languageManager = new LanguageManager(this);
-        this.playerTracker = new PlayerTracker();
+        this.playerTracker = new PlayerTracker(this);
         playerTracker.load();
+        this.localChatIndex = new LocalChatIndex();
+        localChatIndex.load();
         this.messageManager = new MessageManager(this);
         this.mentionManager = new MentionManager(this);
+        this.placeholderApiCache = new PlaceholderApiCache(this);
         this.placeholderProcessor = new PlaceholderProcessor(this);
+        this.playerMetaCache = new PlayerMetaCache(this);
         this.chatMessageRenderer = new ChatMessageRenderer(this);
+        this.chatPipeline = new ChatPipeline(this);
+        this.chatBridge = new ChatBridge(this);
+        chatBridge.start();
 
         // Регистрация ивентов
         getServer().getPluginManager().registerEvents(new ChatListener(this), this);
@@ -53,8 +78,17 @@ public class ChatManagerPlugin extends JavaPlugin {
         // Запуск периодической задачи очистки устаревших инвентарей
         cleanupTaskId = Bukkit.getScheduler().runTaskTimer(this, () -> {
             getPlaceholderProcessor().cleanupExpiredInventories();
+            placeholderApiCache.purgeExpired();
+            playerMetaCache.purgeExpired();
         }, 1200L, 1200L).getTaskId();
 
+        // Периодическая сверка позиций и прав слушателей локального чата
+        indexResyncTaskId = Bukkit.getScheduler().runTaskTimer(this, localChatIndex::resync, 20L, 20L).getTaskId();
+
+        // Выгрузка метрик в файл Prometheus (если он задан в конфиге)
+        long exportTicks = configManager.getSnapshot().getMetricsExportInterval() * 20L;
+        metricsExportTaskId = Bukkit.getScheduler().runTaskTimerAsynchronously(this, chatMetrics::exportPrometheus, exportTicks, exportTicks).getTaskId();
+
         getLogger().info("ChatManager успешно запущен!");
     }
 
@@ -68,11 +102,34 @@ public class ChatManagerPlugin extends JavaPlugin {
             }
         }
 
+        // Остановка конвейера отрисовки
+        if (chatPipeline != null) {
+            chatPipeline.shutdown();
+        }
+
+        // Остановка моста после конвейера: уже отрисованные сообщения успеют уйти
+        if (chatBridge != null) {
+            chatBridge.stop();
+        }
+
+        // Журнал последним: дописываем всё, что успели отправить
+        if (chatLogWriter != null) {
+            chatLogWriter.stop();
+        }
+
         // Отмена задачи очистки инвентарей
         if (cleanupTaskId != -1) {
             Bukkit.getScheduler().cancelTask(cleanupTaskId);
             cleanupTaskId = -1;
         }
+        if (indexResyncTaskId != -1) {
+            Bukkit.getScheduler().cancelTask(indexResyncTaskId);
+            indexResyncTaskId = -1;
+        }
+        if (metricsExportTaskId != -1) {
+            Bukkit.getScheduler().cancelTask(metricsExportTaskId);
+            metricsExportTaskId = -1;
+        }
 
         getLogger().info("ChatManager отключен!");
     }
@@ -105,7 +162,43 @@ public class ChatManagerPlugin extends JavaPlugin {
         return playerTracker;
     }
 
+    public LocalChatIndex getLocalChatIndex() {
+        return localChatIndex;
+    }
+
     public MentionManager getMentionManager() {
         return mentionManager;
     }
+
+    public PlaceholderApiCache getPlaceholderApiCache() {
+        return placeholderApiCache;
+    }
+
+    public PlayerMetaCache getPlayerMetaCache() {
+        return playerMetaCache;
+    }
+
+    public ChatHistory getChatHistory() {
+        return chatHistory;
+    }
+
+    public ChatLogWriter getChatLogWriter() {
+        return chatLogWriter;
+    }
+
+    public ChatBridge getChatBridge() {
+        return chatBridge;
+    }
+
+    public ChatRateLimiter getChatRateLimiter() {
+        return chatRateLimiter;
+    }
+
+    public ChatMetrics getChatMetrics() {
+        return chatMetrics;
+    }
+
+    public ChatPipeline getChatPipeline() {
+        return chatPipeline;
+    }
 }
@@ -2,6 +2,10 @@ package com.flyaway.chatmanager.commands;
 
 import com.flyaway.chatmanager.ChatManagerPlugin;
 import com.flyaway.chatmanager.managers.*;
+import com.flyaway.chatmanager.utils.ChatLogFormat;
+import com.flyaway.chatmanager.utils.ChatLogReader;
+import com.flyaway.chatmanager.utils.LatencyHistogram;
+import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -11,7 +15,12 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.logging.Level;
 
 public class ChatCommand implements CommandExecutor, TabCompleter {
 
@@ -22,6 +31,11 @@ public class ChatCommand implements CommandExecutor, TabCompleter {
     private final PlayerTracker playerTracker;
     private final ChatMessageRenderer renderer;
 
+    private static final int HISTORY_PAGE_SIZE = 10;
+    private static final DateTimeFormatter HISTORY_TIME = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final int LOG_LIMIT = 20;
+    private static final DateTimeFormatter LOG_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
     public ChatCommand(ChatManagerPlugin plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
@@ -65,6 +79,15 @@ public class ChatCommand implements CommandExecutor, TabCompleter {
             case "info":
                 infoCommand(sender);
                 break;
+            case "history":
+                historyCommand(sender, args);
+                break;
+            case "log":
+                logCommand(sender, args);
+                break;
+            case "stats":
+                statsCommand(sender, args);
+                break;
             case "openinv":
                 if (args.length != 3) break;
                 openInvCommand(sender, args);
@@ -108,6 +131,8 @@ public class ChatCommand implements CommandExecutor, TabCompleter {
 
         try {
             configManager.reloadConfig();
+            plugin.getPlaceholderApiCache().clear();
+            renderer.getChatHeaderCache().clear();
             plugin.getLanguageManager().load();
             messageManager.sendReloadSuccess(sender);
         } catch (Exception e) {
@@ -186,11 +211,195 @@ public class ChatCommand implements CommandExecutor, TabCompleter {
                 .replace("{authors}", String.join(", ", plugin.getPluginMeta().getAuthors()))
                 .replace("{api}", apiVersion)
                 .replace("{radius}", String.valueOf(configManager.getLocalChatRadius()))
-                .replace("{format}", configManager.getMessageFormat());
+                .replace("{format}", configManager.getMessageFormat())
+                .replace("{snapshots}", String.valueOf(plugin.getPlaceholderProcessor().getInventorySnapshotCount()));
 
         messageManager.sendMessage(sender, info);
     }
 
+    private void historyCommand(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("chatmanager.history")) {
+            messageManager.sendNoPermission(sender);
+            return;
+        }
+
+        // history [игрок] [страница]; одиночное число — номер страницы
+        String player = null;
+        String pageArg = null;
+        if (args.length == 2) {
+            if (args[1].chars().allMatch(Character::isDigit)) {
+                pageArg = args[1];
+            } else {
+                player = args[1];
+            }
+        } else if (args.length > 2) {
+            player = args[1];
+            pageArg = args[2];
+        }
+
+        int page;
+        try {
+            page = pageArg == null ? 1 : Math.max(1, Integer.parseInt(pageArg));
+        } catch (NumberFormatException e) {
+            messageManager.sendUnknownCommand(sender);
+            return;
+        }
+
+        ChatHistory history = plugin.getChatHistory();
+        int total = history.count(player);
+        if (total == 0) {
+            messageManager.sendMessage(sender, configManager.getMessage("history-empty"));
+            return;
+        }
+
+        int pages = (total + HISTORY_PAGE_SIZE - 1) / HISTORY_PAGE_SIZE;
+        page = Math.min(page, pages);
+        List<ChatHistory.Entry> entries = history.read(player, (page - 1) * HISTORY_PAGE_SIZE, HISTORY_PAGE_SIZE);
+
+        Component result = messageManager.formatMessage(configManager.getMessage("history-header")
+                .replace("{player}", player == null ? "*" : player)
+                .replace("{page}", String.valueOf(page))
+                .replace("{pages}", String.valueOf(pages)));
+
+        // Старые сообщения выше, как в чате
+        String lineFormat = configManager.getMessage("history-line");
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            ChatHistory.Entry entry = entries.get(i);
+            String line = lineFormat
+                    .replace("{time}", HISTORY_TIME.format(Instant.ofEpochMilli(entry.timestamp())))
+                    .replace("{scope}", configManager.getMessage(entry.scope() == ChatHistory.Scope.GLOBAL ? "history-scope-global" : "history-scope-local"))
+                    .replace("{player}", entry.senderName());
+            result = result.append(Component.newline())
+                    .append(messageManager.formatMessage(line))
+                    .append(entry.component());
+        }
+
+        messageManager.sendMessage(sender, result);
+    }
+
+    private void logCommand(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("chatmanager.log")) {
+            messageManager.sendNoPermission(sender);
+            return;
+        }
+
+        ChatLogWriter chatLog = plugin.getChatLogWriter();
+        if (!chatLog.isEnabled()) {
+            messageManager.sendMessage(sender, configManager.getMessage("log-disabled"));
+            return;
+        }
+
+        // log [игрок|*] [текст...]
+        String player = args.length > 1 && !args[1].equals("*") ? args[1] : null;
+        String text = args.length > 2 ? String.join(" ", Arrays.copyOfRange(args, 2, args.length)) : null;
+
+        // Сегменты читаются с диска, поэтому не в основном потоке
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<ChatLogFormat.Entry> entries;
+            try {
+                entries = ChatLogReader.grep(chatLog.getDirectory(), ChatLogReader.filter(player, text), LOG_LIMIT);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Ошибка чтения журнала чата", e);
+                messageManager.sendMessage(sender, configManager.getMessage("log-empty"));
+                return;
+            }
+
+            if (entries.isEmpty()) {
+                messageManager.sendMessage(sender, configManager.getMessage("log-empty"));
+                return;
+            }
+
+            Component result = messageManager.formatMessage(configManager.getMessage("log-header")
+                    .replace("{player}", player == null ? "*" : player)
+                    .replace("{count}", String.valueOf(entries.size())));
+
+            String lineFormat = configManager.getMessage("log-line");
+            for (ChatLogFormat.Entry entry : entries) {
+                String target = entry.target().isEmpty() ? "" : configManager.getMessage("log-target").replace("{target}", entry.target());
+                String line = lineFormat
+                        .replace("{time}", LOG_TIME.format(Instant.ofEpochMilli(entry.timestamp())))
+                        .replace("{kind}", configManager.getMessage(logKindKey(entry.kind())))
+                        .replace("{player}", entry.senderName())
+                        .replace("{target}", target);
+                // Текст игрока выводится как есть, без разбора MiniMessage
+                result = result.append(Component.newline())
+                        .append(messageManager.formatMessage(line))
+                        .append(Component.text(entry.text()));
+            }
+
+            messageManager.sendMessage(sender, result);
+        });
+    }
+
+    private static String logKindKey(ChatLogFormat.Kind kind) {
+        return switch (kind) {
+            case GLOBAL -> "log-kind-global";
+            case PRIVATE -> "log-kind-private";
+            default -> "log-kind-local";
+        };
+    }
+
+    private void statsCommand(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("chatmanager.stats")) {
+            messageManager.sendNoPermission(sender);
+            return;
+        }
+
+        ChatMetrics metrics = plugin.getChatMetrics();
+        if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            messageManager.sendMessage(sender, configManager.getMessage("stats-reset"));
+            return;
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(configManager.getMessage("stats-header")).append("\n");
+
+        // Этапы отрисовки, время в микросекундах
+        for (ChatMetrics.Stage stage : ChatMetrics.Stage.values()) {
+            LatencyHistogram histogram = metrics.getHistogram(stage);
+            String line = configManager.getMessage("stats-stage")
+                    .replace("{stage}", stage.getName())
+                    .replace("{count}", String.valueOf(histogram.getCount()))
+                    .replace("{p50}", micros(histogram.quantile(0.5)))
+                    .replace("{p95}", micros(histogram.quantile(0.95)))
+                    .replace("{p99}", micros(histogram.quantile(0.99)))
+                    .replace("{max}", micros(histogram.getMax()));
+            builder.append(line).append("\n");
+        }
+
+        ChatPipeline pipeline = plugin.getChatPipeline();
+        PlaceholderApiCache papi = plugin.getPlaceholderApiCache();
+        PlayerMetaCache meta = plugin.getPlayerMetaCache();
+        ChatHeaderCache headers = renderer.getChatHeaderCache();
+        String counters = configManager.getMessage("stats-counters")
+                .replace("{messages}", String.valueOf(metrics.getMessages()))
+                .replace("{recipients}", String.valueOf(metrics.getRecipients()))
+                .replace("{snapshots}", String.valueOf(metrics.getSnapshots()))
+                .replace("{pending}", String.valueOf(pipeline.getPending()))
+                .replace("{dropped}", String.valueOf(pipeline.getDropped()))
+                .replace("{degraded}", String.valueOf(pipeline.getDegraded()))
+                .replace("{limited}", String.valueOf(plugin.getChatRateLimiter().getLimited()))
+                .replace("{duplicates}", String.valueOf(plugin.getChatRateLimiter().getDuplicates()))
+                .replace("{log-written}", String.valueOf(plugin.getChatLogWriter().getWritten()))
+                .replace("{log-dropped}", String.valueOf(plugin.getChatLogWriter().getDropped()))
+                .replace("{papi}", hitRate(papi.getHits(), papi.getMisses()))
+                .replace("{meta}", hitRate(meta.getHits(), meta.getMisses()))
+                .replace("{header}", hitRate(headers.getHits(), headers.getMisses()));
+        builder.append(counters);
+
+        messageManager.sendMessage(sender, builder.toString());
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+
+    private static String hitRate(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? "-" : String.format(Locale.ROOT, "%.1f%%", hits * 100.0 / total);
+    }
+
     private void sendHelp(CommandSender sender) {
         String help = configManager.getMessage("help");
 
@@ -218,6 +427,15 @@ public class ChatCommand implements CommandExecutor, TabCompleter {
             if (sender.hasPermission("chatmanager.bc")) {
                 completions.add("bc");
             }
+            if (sender.hasPermission("chatmanager.stats")) {
+                completions.add("stats");
+            }
+            if (sender.hasPermission("chatmanager.history")) {
+                completions.add("history");
+            }
+            if (sender.hasPermission("chatmanager.log")) {
+                completions.add("log");
+            }
 
             String prefix = args[0].toLowerCase();
             return completions.stream().filter(c -> c.startsWith(prefix)).toList();
@@ -236,6 +454,39 @@ public class ChatCommand implements CommandExecutor, TabCompleter {
             }
             return Collections.emptyList();
         }
+        // ---------- history <player> ----------
+        if (args[0].equalsIgnoreCase("history")) {
+            if (args.length == 2 && sender.hasPermission("chatmanager.history")) {
+                String prefix = args[1].toLowerCase();
+                return playerTracker.getPlayerNames().stream()
+                        .filter(name -> name.toLowerCase().startsWith(prefix))
+                        .sorted()
+                        .toList();
+            }
+            return Collections.emptyList();
+        }
+
+        // ---------- log <player|*> ----------
+        if (args[0].equalsIgnoreCase("log")) {
+            if (args.length == 2 && sender.hasPermission("chatmanager.log")) {
+                String prefix = args[1].toLowerCase();
+                List<String> names = new ArrayList<>(playerTracker.getPlayerNames());
+                names.add("*");
+                return names.stream()
+                        .filter(name -> name.toLowerCase().startsWith(prefix))
+                        .sorted()
+                        .toList();
+            }
+            return Collections.emptyList();
+        }
+
+        // ---------- stats reset ----------
+        if (args[0].equalsIgnoreCase("stats")) {
+            if (args.length == 2 && sender.hasPermission("chatmanager.stats") && "reset".startsWith(args[1].toLowerCase())) {
+                return List.of("reset");
+            }
+            return Collections.emptyList();
+        }
         return completions;
     }
 }
@@ -1,9 +1,18 @@
 package com.flyaway.chatmanager.listeners;
 
 import com.flyaway.chatmanager.ChatManagerPlugin;
+import com.flyaway.chatmanager.managers.ChatBridge;
+import com.flyaway.chatmanager.managers.ChatHistory;
+import com.flyaway.chatmanager.managers.ChatLogWriter;
+import com.flyaway.chatmanager.managers.ChatMetrics;
+import com.flyaway.chatmanager.managers.ChatPipeline;
+import com.flyaway.chatmanager.managers.ChatRateLimiter;
 import com.flyaway.chatmanager.managers.ConfigManager;
 import com.flyaway.chatmanager.managers.MessageManager;
+import com.flyaway.chatmanager.managers.PlaceholderProcessor;
+import com.flyaway.chatmanager.managers.RenderedMessage;
 import com.flyaway.chatmanager.managers.ChatMessageRenderer;
+import com.flyaway.chatmanager.utils.ChatLogFormat;
 import io.papermc.paper.event.player.AsyncChatEvent;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
@@ -18,11 +27,25 @@ public class ChatListener implements Listener {
     private final ConfigManager configManager;
     private final ChatMessageRenderer renderer;
     private final MessageManager messageManager;
+    private final ChatPipeline chatPipeline;
+    private final ChatMetrics chatMetrics;
+    private final ChatRateLimiter chatRateLimiter;
+    private final ChatBridge chatBridge;
+    private final ChatHistory chatHistory;
+    private final ChatLogWriter chatLogWriter;
+    private final PlaceholderProcessor placeholderProcessor;
 
     public ChatListener(ChatManagerPlugin plugin) {
         this.configManager = plugin.getConfigManager();
         this.renderer = plugin.getChatMessageRenderer();
         this.messageManager = plugin.getMessageManager();
+        this.chatPipeline = plugin.getChatPipeline();
+        this.chatMetrics = plugin.getChatMetrics();
+        this.chatRateLimiter = plugin.getChatRateLimiter();
+        this.chatBridge = plugin.getChatBridge();
+        this.chatHistory = plugin.getChatHistory();
+        this.chatLogWriter = plugin.getChatLogWriter();
+        this.placeholderProcessor = plugin.getPlaceholderProcessor();
     }
 
     @EventHandler(priority = EventPriority.HIGHEST)
@@ -33,19 +56,40 @@ public class ChatListener implements Listener {
         Player player = event.getPlayer();
         String plainMessage = renderer.extractPlainMessage(event.message());
 
+        // Флуд отсекается до любой отрисовки
+        ChatRateLimiter.Result result = chatRateLimiter.checkChat(player, plainMessage);
+        if (result != ChatRateLimiter.Result.ALLOWED) {
+            messageManager.sendMessage(player, configManager.getMessage(
+                    result == ChatRateLimiter.Result.DUPLICATE ? "chat-duplicate" : "chat-rate-limited"));
+            return;
+        }
+
+        // Отрисовка и рассылка идут в конвейере, поток события освобождается сразу
+        submit(player, degraded -> deliverChat(player, plainMessage, degraded));
+    }
+
+    private void deliverChat(Player player, String plainMessage, boolean degraded) {
+        long start = chatMetrics.start();
         boolean isGlobal = plainMessage.startsWith("!");
         String messageText = isGlobal ? plainMessage.substring(1).trim() : plainMessage.trim();
 
-        // Форматируем сообщение
-        Component formatted = renderer.renderLocaleMessage(player, messageText, isGlobal);
+        // Форматируем сообщение один раз для всех получателей
+        RenderedMessage formatted = new RenderedMessage(renderer.renderLocaleMessage(player, messageText, isGlobal, degraded));
 
         // Используем MessageManager для отправки
+        int recipients;
         if (isGlobal) {
-            messageManager.broadcastMessage(formatted);
+            recipients = messageManager.broadcastMessage(formatted);
+            chatBridge.publishGlobal(player, formatted.body());
         } else {
             int radius = configManager.getLocalChatRadius();
-            messageManager.sendMessageToPlayersInRadius(player, formatted, radius);
+            recipients = messageManager.sendMessageToPlayersInRadius(player, formatted, radius);
         }
+        chatMetrics.recordMessage(start, recipients);
+        chatHistory.append(player.getUniqueId(), player.getName(),
+                isGlobal ? ChatHistory.Scope.GLOBAL : ChatHistory.Scope.LOCAL, messageText, formatted.body());
+        chatLogWriter.log(isGlobal ? ChatLogFormat.Kind.GLOBAL : ChatLogFormat.Kind.LOCAL,
+                player.getUniqueId(), player.getName(), "", messageText);
     }
 
     @EventHandler(priority = EventPriority.HIGHEST)
@@ -71,31 +115,105 @@ public class ChatListener implements Listener {
         }
     }
 
+    /**
+     * В основном потоке ищем получателя, фильтруем цвета по правам и снимаем состояние отправителя
+     * (снимки инвентарей, предмет в руке, локаль), а отрисовку ставим в конвейер отправителя,
+     * поэтому личные сообщения идут по порядку вместе с его сообщениями в чат
+     */
     private void handleMessageCommand(Player sender, String targetName, String text, String commandUsed) {
         Player target = Bukkit.getPlayerExact(targetName);
+        // Игрока нет на этом сервере — сообщение уйдёт через мост, если он есть на одном из остальных
+        if (target == null && !chatBridge.isOnlineElsewhere(targetName)) {
+            messageManager.sendMessage(sender, configManager.getMessage("player-not-found"));
+            return;
+        }
+        if (!chatRateLimiter.tryAcquire(sender, ChatRateLimiter.Channel.PRIVATE)) {
+            messageManager.sendMessage(sender, configManager.getMessage("chat-rate-limited"));
+            return;
+        }
+
+        String colored = renderer.applyColorPermissions(sender, text);
+        PlaceholderProcessor.SenderState state = placeholderProcessor.captureSenderState(sender, colored);
         if (target == null) {
+            submit(sender, degraded -> deliverRemotePrivate(sender, targetName, text, colored, state, commandUsed, degraded));
+        } else {
+            submit(sender, degraded -> deliverPrivate(sender, target, text, colored, state, commandUsed, degraded));
+        }
+    }
+
+    /**
+     * Личное сообщение игроку на другом сервере: отправитель видит свою копию сразу,
+     * получатель — если он всё ещё онлайн на том сервере, где был по последнему списку игроков
+     */
+    private void deliverRemotePrivate(Player sender, String targetName, String text, String colored,
+                                      PlaceholderProcessor.SenderState state, String commandUsed, boolean degraded) {
+        long start = chatMetrics.start();
+        Component formattedText = renderer.renderMessage(sender, colored, state, degraded);
+
+        String messageForSender = configManager.getMessage("to-player").replace("<reset>", "").replace("{target}", targetName);
+        messageManager.sendMessage(sender, messageManager.formatMessage(messageForSender + "<reset> ").append(formattedText));
+
+        chatBridge.publishPrivate(sender, targetName, formatForTarget(sender, commandUsed).append(formattedText));
+        chatMetrics.recordMessage(start, 0);
+        chatLogWriter.log(ChatLogFormat.Kind.PRIVATE, sender.getUniqueId(), sender.getName(), targetName, text);
+    }
+
+    /**
+     * @param text    Текст, как его написал игрок (для журнала)
+     * @param colored Текст после фильтра цветов по правам
+     */
+    private void deliverPrivate(Player sender, Player target, String text, String colored,
+                                PlaceholderProcessor.SenderState state, String commandUsed, boolean degraded) {
+        // Получатель мог выйти, пока сообщение ждало в очереди
+        if (!target.isOnline()) {
             messageManager.sendMessage(sender, configManager.getMessage("player-not-found"));
             return;
         }
 
-        Component formattedText = renderer.renderMessage(sender, renderer.applyColorPermissions(sender, text));
+        long start = chatMetrics.start();
+        Component formattedText = renderer.renderMessage(sender, colored, state, degraded);
 
         // Формат сообщения для получателя
         String messageForSender = configManager.getMessage("to-player").replace("<reset>", "").replace("{target}", target.getName());
         messageManager.sendMessage(sender, messageManager.formatMessage(messageForSender + "<reset> ").append(formattedText));
 
-        // Формат сообщения для отправителя
+        messageManager.sendMessage(target, formatForTarget(sender, commandUsed).append(formattedText));
+        chatMetrics.recordMessage(start, 1);
+        chatLogWriter.log(ChatLogFormat.Kind.PRIVATE, sender.getUniqueId(), sender.getName(), target.getName(), text);
+    }
+
+    // Формат сообщения для получателя: клик подставляет ответ отправителю
+    private Component formatForTarget(Player sender, String commandUsed) {
         String hoverText = configManager.getMessage("reply-hover-text");
         String messageForTarget = configManager.getMessage("from-player").replace("<reset>", "").replace("{sender}", sender.getName());
         messageForTarget = "<hover:show_text:'" + hoverText + "'>" +
                 "<click:suggest_command:'" + commandUsed + " " + sender.getName() + " '>" +
                 messageForTarget + "</click></hover>";
 
-        messageManager.sendMessage(target, messageManager.formatMessage(messageForTarget + "<reset> ").append(formattedText));
+        return messageManager.formatMessage(messageForTarget + "<reset> ");
     }
 
     private void handleBroadcast(Player sender, String text) {
-        Component formattedText = renderer.renderMessage(sender, renderer.applyColorPermissions(sender, text));
-        messageManager.broadcastMessage(formattedText);
+        if (!chatRateLimiter.tryAcquire(sender, ChatRateLimiter.Channel.CHAT)) {
+            messageManager.sendMessage(sender, configManager.getMessage("chat-rate-limited"));
+            return;
+        }
+
+        String colored = renderer.applyColorPermissions(sender, text);
+        PlaceholderProcessor.SenderState state = placeholderProcessor.captureSenderState(sender, colored);
+        submit(sender, degraded -> {
+            long start = chatMetrics.start();
+            Component formattedText = renderer.renderMessage(sender, colored, state, degraded);
+            chatMetrics.recordMessage(start, messageManager.broadcastMessage(new RenderedMessage(formattedText)));
+            chatBridge.publishGlobal(sender, formattedText);
+            chatHistory.append(sender.getUniqueId(), sender.getName(), ChatHistory.Scope.GLOBAL, text, formattedText);
+            chatLogWriter.log(ChatLogFormat.Kind.GLOBAL, sender.getUniqueId(), sender.getName(), "", text);
+        });
+    }
+
+    private void submit(Player sender, ChatPipeline.RenderTask task) {
+        if (!chatPipeline.submit(sender.getUniqueId(), task)) {
+            messageManager.sendMessage(sender, configManager.getMessage("chat-overloaded"));
+        }
     }
 }
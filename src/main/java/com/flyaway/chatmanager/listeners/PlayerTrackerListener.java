@@ -1,27 +1,69 @@
 package com.flyaway.chatmanager.listeners;
 
 import com.flyaway.chatmanager.ChatManagerPlugin;
+import com.flyaway.chatmanager.managers.ChatMessageRenderer;
+import com.flyaway.chatmanager.managers.ChatRateLimiter;
+import com.flyaway.chatmanager.managers.LocalChatIndex;
+import com.flyaway.chatmanager.managers.PlaceholderApiCache;
+import com.flyaway.chatmanager.managers.PlayerMetaCache;
 import com.flyaway.chatmanager.managers.PlayerTracker;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.*;
 
 public class PlayerTrackerListener implements Listener {
 
     private final PlayerTracker tracker;
+    private final LocalChatIndex localChatIndex;
+    private final PlaceholderApiCache placeholderApiCache;
+    private final ChatMessageRenderer chatMessageRenderer;
+    private final PlayerMetaCache playerMetaCache;
+    private final ChatRateLimiter chatRateLimiter;
 
     public PlayerTrackerListener(ChatManagerPlugin plugin) {
         this.tracker = plugin.getPlayerTracker();
+        this.localChatIndex = plugin.getLocalChatIndex();
+        this.placeholderApiCache = plugin.getPlaceholderApiCache();
+        this.chatMessageRenderer = plugin.getChatMessageRenderer();
+        this.playerMetaCache = plugin.getPlayerMetaCache();
+        this.chatRateLimiter = plugin.getChatRateLimiter();
     }
 
     @EventHandler
     public void onJoin(PlayerJoinEvent event) {
         tracker.add(event.getPlayer());
+        localChatIndex.add(event.getPlayer());
     }
 
     @EventHandler
     public void onQuit(PlayerQuitEvent event) {
         tracker.remove(event.getPlayer());
+        localChatIndex.remove(event.getPlayer());
+        placeholderApiCache.invalidate(event.getPlayer().getUniqueId());
+        chatMessageRenderer.invalidate(event.getPlayer().getUniqueId());
+        playerMetaCache.invalidate(event.getPlayer().getUniqueId());
+        chatRateLimiter.invalidate(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMove(PlayerMoveEvent event) {
+        if (!event.hasChangedPosition()) return;
+        localChatIndex.update(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTeleport(PlayerTeleportEvent event) {
+        localChatIndex.update(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        localChatIndex.add(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(PlayerRespawnEvent event) {
+        localChatIndex.update(event.getPlayer(), event.getRespawnLocation());
     }
 }
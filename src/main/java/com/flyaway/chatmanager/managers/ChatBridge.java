@@ -0,0 +1,277 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.ChatManagerPlugin;
+import com.flyaway.chatmanager.network.BridgeCodec;
+import com.flyaway.chatmanager.network.BridgeMessage;
+import com.flyaway.chatmanager.network.BridgeTransport;
+import com.flyaway.chatmanager.network.LoopbackTransport;
+import com.flyaway.chatmanager.network.PluginMessageTransport;
+import com.flyaway.chatmanager.network.TcpTransport;
+import com.flyaway.chatmanager.utils.ExpiringMap;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Мост чата между серверами за прокси.
+ * - глобальные и личные сообщения отправляются уже отрисованными (JSON компонента), получатели их не перерисовывают
+ * - сообщения копятся в очереди и уходят одним кадром раз в тик
+ * - повторы отсеиваются по случайному ID сообщения
+ * - каждый сервер раз в несколько секунд рассылает список своих игроков, по нему /msg проверяет ник получателя
+ * Транспорт выбирается при запуске сервера, перезагрузка конфига его не меняет.
+ */
+public class ChatBridge {
+
+    // Сколько помнить ID полученных сообщений
+    private static final long DEDUP_TTL_MILLIS = 60_000;
+    // Как часто рассылать список игроков и сколько верить полученному (переживает два пропуска)
+    private static final long PLAYERS_INTERVAL_TICKS = 100L;
+    private static final long PLAYERS_TTL_MILLIS = 15_000;
+    private static final UUID NO_SENDER = new UUID(0, 0);
+
+    private final ChatManagerPlugin plugin;
+    private final ConfigManager configManager;
+    private final PlayerTracker playerTracker;
+    private final ChatHistory chatHistory;
+    private final Queue<BridgeMessage> outbox = new ConcurrentLinkedQueue<>();
+    private final ExpiringMap<Long, Boolean> seen = new ExpiringMap<>();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    // Игроки остальных серверов по имени сервера; ники в нижнем регистре
+    private final Map<String, RemotePlayers> remotePlayers = new ConcurrentHashMap<>();
+    private volatile BridgeTransport transport;
+    private String serverName;
+    private int flushTaskId = -1;
+    private int playersTaskId = -1;
+
+    public ChatBridge(ChatManagerPlugin plugin) {
+        this.plugin = plugin;
+        this.configManager = plugin.getConfigManager();
+        this.playerTracker = plugin.getPlayerTracker();
+        this.chatHistory = plugin.getChatHistory();
+    }
+
+    public void start() {
+        ConfigSnapshot config = configManager.getSnapshot();
+        if (!config.isNetworkEnabled()) return;
+
+        serverName = config.getNetworkServerName();
+        BridgeTransport created = switch (config.getNetworkTransport().toLowerCase()) {
+            case "tcp" -> new TcpTransport(plugin.getLogger(), config.getNetworkTcpBind(),
+                    config.getNetworkTcpPeers(), config.getNetworkTcpSecret());
+            case "loopback" -> new LoopbackTransport("chatmanager");
+            default -> new PluginMessageTransport(plugin);
+        };
+
+        try {
+            created.start(this::receive);
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Не удалось запустить мост чата", e);
+            created.close();
+            return;
+        }
+
+        transport = created;
+        flushTaskId = Bukkit.getScheduler().runTaskTimer(plugin, this::flush, 1L, 1L).getTaskId();
+        playersTaskId = Bukkit.getScheduler().runTaskTimer(plugin, this::publishPlayers, 1L, PLAYERS_INTERVAL_TICKS).getTaskId();
+        plugin.getLogger().info("Мост чата запущен: " + config.getNetworkTransport() + ", сервер " + serverName);
+    }
+
+    public void stop() {
+        if (flushTaskId != -1) {
+            Bukkit.getScheduler().cancelTask(flushTaskId);
+            flushTaskId = -1;
+        }
+        if (playersTaskId != -1) {
+            Bukkit.getScheduler().cancelTask(playersTaskId);
+            playersTaskId = -1;
+        }
+        remotePlayers.clear();
+        if (transport != null) {
+            flush();
+            transport.close();
+            transport = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return transport != null;
+    }
+
+    /**
+     * Глобальное сообщение для остальных серверов
+     */
+    public void publishGlobal(Player sender, Component message) {
+        publish(BridgeMessage.Type.GLOBAL, sender, "", message);
+    }
+
+    /**
+     * Личное сообщение игроку на другом сервере
+     *
+     * @param target  Ник получателя
+     * @param message Сообщение в том виде, в каком его увидит получатель
+     */
+    public void publishPrivate(Player sender, String target, Component message) {
+        publish(BridgeMessage.Type.PRIVATE, sender, target, message);
+    }
+
+    /**
+     * Есть ли игрок с таким ником (без учёта регистра) на одном из остальных серверов.
+     * Список обновляется раз в несколько секунд, поэтому только что зашедший игрок может быть ещё не виден.
+     */
+    public boolean isOnlineElsewhere(String name) {
+        if (transport == null) return false;
+
+        long now = System.currentTimeMillis();
+        String key = name.toLowerCase(Locale.ROOT);
+        for (RemotePlayers server : remotePlayers.values()) {
+            if (server.receivedAt() + PLAYERS_TTL_MILLIS > now && server.names().contains(key)) return true;
+        }
+        return false;
+    }
+
+    private void publishPlayers() {
+        if (transport == null) return;
+
+        String names = String.join("\n", playerTracker.getPlayerNames());
+        outbox.add(new BridgeMessage(ThreadLocalRandom.current().nextLong(), BridgeMessage.Type.PLAYERS, serverName,
+                NO_SENDER, "", "", names));
+    }
+
+    private void publish(BridgeMessage.Type type, Player sender, String target, Component message) {
+        if (transport == null) return;
+
+        String json = GsonComponentSerializer.gson().serialize(PlaceholderProcessor.withoutSnapshotLinks(message));
+        outbox.add(new BridgeMessage(ThreadLocalRandom.current().nextLong(), type, serverName,
+                sender.getUniqueId(), sender.getName(), target, json));
+    }
+
+    /**
+     * Раз в тик: всё накопленное уходит кадрами не больше допустимого размера
+     */
+    private void flush() {
+        BridgeTransport current = transport;
+        if (current == null || outbox.isEmpty()) return;
+
+        int limit = current.getMaxFrameSize() - BridgeCodec.FRAME_HEADER_SIZE;
+        List<byte[]> batch = new ArrayList<>();
+        int size = 0;
+
+        BridgeMessage message;
+        while ((message = outbox.poll()) != null) {
+            byte[] encoded = BridgeCodec.encodeMessage(message);
+            if (encoded.length > limit) {
+                plugin.getLogger().warning("Сообщение " + message.senderName() + " слишком большое для моста чата, пропущено");
+                continue;
+            }
+            if (size + encoded.length > limit) {
+                current.send(BridgeCodec.encodeFrame(batch));
+                batch = new ArrayList<>();
+                size = 0;
+            }
+            batch.add(encoded);
+            size += encoded.length;
+            sent.increment();
+        }
+
+        if (!batch.isEmpty()) {
+            current.send(BridgeCodec.encodeFrame(batch));
+        }
+    }
+
+    private void receive(byte[] frame) {
+        List<BridgeMessage> messages;
+        try {
+            messages = BridgeCodec.decodeFrame(frame);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Некорректный кадр моста чата: " + e.getMessage());
+            return;
+        }
+
+        ConfigSnapshot config = configManager.getSnapshot();
+        for (BridgeMessage message : messages) {
+            if (message.origin().equals(serverName)) continue;
+            if (!markSeen(message.id(), config.getNetworkDedupSize())) {
+                duplicates.increment();
+                continue;
+            }
+            received.increment();
+            deliver(message);
+        }
+    }
+
+    // Кадры от разных соседей приходят в разных потоках: проверка и запись ID — одно действие
+    private synchronized boolean markSeen(long id, int maxEntries) {
+        if (seen.get(id) != null) return false;
+        seen.put(id, Boolean.TRUE, DEDUP_TTL_MILLIS, maxEntries);
+        return true;
+    }
+
+    private void deliver(BridgeMessage message) {
+        if (message.type() == BridgeMessage.Type.PLAYERS) {
+            Set<String> names = new HashSet<>();
+            for (String name : message.component().split("\n")) {
+                if (!name.isEmpty()) names.add(name.toLowerCase(Locale.ROOT));
+            }
+            remotePlayers.put(message.origin(), new RemotePlayers(names, System.currentTimeMillis()));
+            return;
+        }
+
+        Component component = GsonComponentSerializer.gson().deserialize(message.component());
+
+        if (message.type() == BridgeMessage.Type.GLOBAL) {
+            Bukkit.getServer().sendMessage(component);
+            chatHistory.append(message.sender(), message.senderName(), ChatHistory.Scope.GLOBAL,
+                    PlainTextComponentSerializer.plainText().serialize(component), component);
+            return;
+        }
+
+        Player target = findPlayer(message.target());
+        if (target != null) {
+            target.sendMessage(component);
+        }
+    }
+
+    private Player findPlayer(String name) {
+        Player player = playerTracker.getPlayer(name);
+        if (player != null) return player;
+
+        for (Player online : playerTracker.getPlayers()) {
+            if (online.getName().equalsIgnoreCase(name)) return online;
+        }
+        return null;
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    private record RemotePlayers(Set<String> names, long receivedAt) {
+    }
+}
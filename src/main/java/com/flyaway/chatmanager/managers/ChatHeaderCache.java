@@ -0,0 +1,148 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.ChatManagerPlugin;
+import com.flyaway.chatmanager.utils.MiniMessageTags;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.TextReplacementConfig;
+import net.kyori.adventure.text.format.Style;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш отрисованной шапки чата игрока (префикс, цвет ника, ник, суффикс и всё до {message}).
+ * Шапка разбирается MiniMessage один раз и пересобирается, только если изменился её исходный текст
+ * (мета LuckPerms, отображаемое имя, значения PlaceholderAPI) или кэш сброшен при пересчёте прав,
+ * перезагрузке конфига или выходе игрока.
+ * Раздельный разбор переносит на сообщение только обычный стиль в месте {message}. Если шапка оставляет открытым
+ * градиент (радугу, переход) или сообщение может закрыть её теги, строку нужно разбирать целиком (см. {@link ChatHeader#canCompose}).
+ */
+public class ChatHeaderCache {
+
+    // Метка места {message}: по ней находится стиль, который незакрытые теги шапки передают сообщению
+    private static final String MARKER = "\uE000";
+    private static final TextReplacementConfig REMOVE_MARKER = TextReplacementConfig.builder()
+            .matchLiteral(MARKER)
+            .replacement("")
+            .build();
+
+    private final MessageManager messageManager;
+    // [0] — локальный чат, [1] — глобальный
+    private final Map<UUID, ChatHeader[]> headers = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ChatHeaderCache(ChatManagerPlugin plugin) {
+        this.messageManager = plugin.getMessageManager();
+    }
+
+    /**
+     * Шапка и хвост сообщения для уже заполненного текста формата
+     */
+    public ChatHeader get(UUID playerId, boolean isGlobal, String headerText, String trailerText) {
+        ChatHeader[] cached = headers.computeIfAbsent(playerId, id -> new ChatHeader[2]);
+        int index = isGlobal ? 1 : 0;
+
+        ChatHeader header = cached[index];
+        if (header != null && header.headerText.equals(headerText) && header.trailerText.equals(trailerText)) {
+            hits.increment();
+            return header;
+        }
+
+        misses.increment();
+        header = build(headerText, trailerText);
+        cached[index] = header;
+        return header;
+    }
+
+    private ChatHeader build(String headerText, String trailerText) {
+        Component parsed = messageManager.formatMessage(headerText + MARKER);
+        Style carried = styleAtMarker(parsed, Style.empty());
+
+        Component trailer = trailerText.isEmpty() ? null : messageManager.formatMessage(trailerText);
+        return new ChatHeader(headerText, trailerText, parsed.replaceText(REMOVE_MARKER),
+                carried != null ? carried : Style.empty(), trailer, MiniMessageTags.openAtEnd(headerText));
+    }
+
+    // Итоговый стиль текста, в котором стоит метка, с учётом стилей всех родителей
+    private static Style styleAtMarker(Component component, Style inherited) {
+        Style style = component.style().merge(inherited, Style.Merge.Strategy.IF_ABSENT_ON_TARGET);
+        if (component instanceof TextComponent text && text.content().contains(MARKER)) {
+            return style;
+        }
+
+        for (Component child : component.children()) {
+            Style found = styleAtMarker(child, style);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    /**
+     * Сбрасывает шапки игрока (пересчёт LuckPerms, выход)
+     */
+    public void invalidate(UUID playerId) {
+        headers.remove(playerId);
+    }
+
+    public void clear() {
+        headers.clear();
+    }
+
+    public int size() {
+        return headers.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public static final class ChatHeader {
+        private final String headerText;
+        private final String trailerText;
+        private final Component header;
+        private final Style carriedStyle;
+        private final Component trailer;
+        private final MiniMessageTags.Open open;
+
+        private ChatHeader(String headerText, String trailerText, Component header, Style carriedStyle, Component trailer,
+                           MiniMessageTags.Open open) {
+            this.headerText = headerText;
+            this.trailerText = trailerText;
+            this.header = header;
+            this.carriedStyle = carriedStyle;
+            this.trailer = trailer;
+            this.open = open;
+        }
+
+        /**
+         * true, если склейка даст то же, что разбор строки целиком: шапка не оставляет открытым градиент
+         * и подобные теги, а сообщение не может закрыть её открытые теги
+         */
+        public boolean canCompose(String bodyText) {
+            return switch (open) {
+                case NONE -> true;
+                case STYLE -> !MiniMessageTags.mayCloseTags(bodyText);
+                case SPAN -> false;
+            };
+        }
+
+        /**
+         * Собирает строку чата: шапка + тело сообщения со стилем, оставшимся открытым в шапке, + хвост
+         */
+        public Component compose(Component body) {
+            Component message = Component.empty().style(carriedStyle).append(body);
+            if (trailer != null) {
+                message = message.append(trailer);
+            }
+            return header.append(message);
+        }
+    }
+}
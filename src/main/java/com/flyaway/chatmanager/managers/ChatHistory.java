@@ -0,0 +1,123 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.ChatManagerPlugin;
+import net.kyori.adventure.text.Component;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Последние сообщения чата в кольцевом буфере фиксированного размера.
+ * - ячейки создаются один раз, запись только переписывает их поля: память не растёт с трафиком
+ * - запись без блокировок: номер берётся атомарным счётчиком, ячейка защищена версией (seqlock)
+ * - чтение пропускает ячейки, которые в этот момент переписываются или уже заняты более новым сообщением
+ * Размер задаётся при запуске сервера.
+ */
+public class ChatHistory {
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+
+    public ChatHistory(ChatManagerPlugin plugin) {
+        int capacity = Integer.highestOneBit(Math.max(1, plugin.getConfigManager().getSnapshot().getHistorySize() - 1)) << 1;
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * @param plain     Текст сообщения, как его написал игрок
+     * @param component Отрисованное сообщение
+     */
+    public void append(UUID sender, String senderName, Scope scope, String plain, Component component) {
+        long seq = cursor.getAndIncrement();
+        Slot slot = slots[(int) (seq & mask)];
+
+        // Нечётная версия — ячейка переписывается; поля не станут видны раньше неё
+        slot.version = seq * 2 + 1;
+        VarHandle.storeStoreFence();
+        slot.timestamp = System.currentTimeMillis();
+        slot.senderMost = sender.getMostSignificantBits();
+        slot.senderLeast = sender.getLeastSignificantBits();
+        slot.senderName = senderName;
+        slot.scope = scope;
+        slot.plain = plain;
+        slot.component = component;
+        slot.version = seq * 2 + 2;
+    }
+
+    /**
+     * Сообщения от новых к старым
+     *
+     * @param senderName Только сообщения этого игрока (без учёта регистра), null — все
+     * @param skip       Сколько подходящих сообщений пропустить
+     * @param limit      Сколько вернуть
+     */
+    public List<Entry> read(String senderName, int skip, int limit) {
+        List<Entry> result = new ArrayList<>(limit);
+        long newest = cursor.get() - 1;
+        long oldest = Math.max(0, newest - mask);
+
+        for (long seq = newest; seq >= oldest && result.size() < limit; seq--) {
+            Entry entry = read(seq);
+            if (entry == null) continue;
+            if (senderName != null && !senderName.equalsIgnoreCase(entry.senderName())) continue;
+
+            if (skip > 0) {
+                skip--;
+            } else {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Количество сообщений в буфере, подходящих под фильтр
+     */
+    public int count(String senderName) {
+        if (senderName == null) return (int) Math.min(cursor.get(), slots.length);
+        return read(senderName, 0, slots.length).size();
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    private Entry read(long seq) {
+        Slot slot = slots[(int) (seq & mask)];
+        long expected = seq * 2 + 2;
+
+        long before = slot.version;
+        if (before != expected) return null;
+        Entry entry = new Entry(new UUID(slot.senderMost, slot.senderLeast), slot.senderName, slot.scope,
+                slot.timestamp, slot.plain, slot.component);
+        VarHandle.loadLoadFence();
+        return slot.version == expected ? entry : null;
+    }
+
+    public enum Scope {
+        LOCAL,
+        GLOBAL
+    }
+
+    public record Entry(UUID sender, String senderName, Scope scope, long timestamp, String plain, Component component) {
+    }
+
+    private static final class Slot {
+        private volatile long version;
+        private long timestamp;
+        private long senderMost;
+        private long senderLeast;
+        private String senderName;
+        private Scope scope;
+        private String plain;
+        private Component component;
+    }
+}
@@ -0,0 +1,223 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.ChatManagerPlugin;
+import com.flyaway.chatmanager.utils.ChatLogFormat;
+import com.flyaway.chatmanager.utils.ChatLogReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Журнал чата на диске: сегменты только для дописывания в папке chatlog.
+ * - чат лишь кладёт запись в ограниченную очередь, при переполнении запись теряется, но чат не ждёт диск
+ * - один фоновый поток пишет записи пачками через FileChannel
+ * - сегмент закрывается по размеру (записи не разрываются между сегментами), самые старые удаляются сверх лимита
+ * - личные сообщения пишутся, только если это отдельно включено
+ * Журнал выключен по умолчанию; настройки применяются при запуске сервера.
+ */
+public class ChatLogWriter {
+
+    private static final int BATCH_SIZE = 512;
+    private static final int BUFFER_SIZE = 1 << 18;
+
+    private final ChatManagerPlugin plugin;
+    private final Path directory;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private BlockingQueue<ChatLogFormat.Entry> queue;
+    private long segmentLimit;
+    private int maxSegments;
+    private boolean logPrivate;
+    private volatile boolean running;
+    private Thread thread;
+
+    // Состояние потока записи
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel channel;
+    private long segmentSize;
+    private long lastSegmentTime;
+
+    public ChatLogWriter(ChatManagerPlugin plugin) {
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(), "chatlog").toPath();
+    }
+
+    public void start() {
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        if (!config.isChatLogEnabled()) return;
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Не удалось создать папку журнала чата", e);
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(config.getChatLogQueueSize());
+        segmentLimit = config.getChatLogSegmentBytes();
+        maxSegments = config.getChatLogMaxSegments();
+        logPrivate = config.isChatLogPrivateMessages();
+        running = true;
+        thread = Thread.ofPlatform().daemon().name("ChatManager-ChatLog").start(this::run);
+    }
+
+    /**
+     * Дописывает оставшиеся записи и закрывает сегмент
+     */
+    public void stop() {
+        if (thread == null) return;
+
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    public boolean isEnabled() {
+        return thread != null;
+    }
+
+    /**
+     * Ставит сообщение в очередь записи, не блокируясь
+     *
+     * @param target Получатель личного сообщения или пустая строка
+     * @param text   Текст, как его написал игрок
+     */
+    public void log(ChatLogFormat.Kind kind, UUID sender, String senderName, String target, String text) {
+        BlockingQueue<ChatLogFormat.Entry> current = queue;
+        if (current == null || !running) return;
+        if (kind == ChatLogFormat.Kind.PRIVATE && !logPrivate) return;
+
+        if (!current.offer(new ChatLogFormat.Entry(System.currentTimeMillis(), kind, sender, senderName, target, text))) {
+            dropped.increment();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void run() {
+        List<ChatLogFormat.Entry> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatLogFormat.Entry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Ошибка записи журнала чата, пачка из " + batch.size() + " записей потеряна", e);
+                dropped.add(batch.size());
+                closeSegment();
+            } finally {
+                batch.clear();
+            }
+        }
+        closeSegment();
+    }
+
+    /**
+     * Буфер ограничен остатком текущего сегмента: запись, которая не влезает, уходит уже в следующий
+     */
+    private void write(List<ChatLogFormat.Entry> batch) throws IOException {
+        if (channel == null) {
+            rotate();
+        }
+
+        for (ChatLogFormat.Entry entry : batch) {
+            if (ChatLogFormat.write(buffer, entry)) continue;
+
+            // Не влезло в буфер: дописываем накопленное, а если кончился сегмент — начинаем новый
+            flushBuffer();
+            if (ChatLogFormat.write(buffer, entry)) continue;
+            rotate();
+            if (!ChatLogFormat.write(buffer, entry)) {
+                // Запись больше целого сегмента (очень маленький segment-size-mb): пишем её в сегмент одну
+                buffer.limit(buffer.capacity());
+                ChatLogFormat.write(buffer, entry);
+            }
+        }
+        flushBuffer();
+        written.add(batch.size());
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segmentSize += channel.write(buffer);
+        }
+        resetBuffer();
+    }
+
+    private void resetBuffer() {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), Math.max(0, segmentLimit - segmentSize)));
+    }
+
+    private void rotate() throws IOException {
+        closeSegment();
+
+        // Имя — время создания, поэтому сегменты сортируются по имени; время строго растёт
+        long time = Math.max(System.currentTimeMillis(), lastSegmentTime + 1);
+        lastSegmentTime = time;
+        Path segment = directory.resolve(String.format("%s%013d%s", ChatLogReader.SEGMENT_PREFIX, time, ChatLogReader.SEGMENT_SUFFIX));
+
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(ChatLogFormat.HEADER_SIZE);
+        ChatLogFormat.writeHeader(header);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        segmentSize = ChatLogFormat.HEADER_SIZE;
+        resetBuffer();
+
+        deleteOldSegments();
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = ChatLogReader.segments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private void closeSegment() {
+        if (channel == null) return;
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Ошибка закрытия сегмента журнала чата", e);
+        }
+        channel = null;
+    }
+}
@@ -1,80 +1,59 @@
 package com.flyaway.chatmanager.managers;
 
 import com.flyaway.chatmanager.ChatManagerPlugin;
-import me.clip.placeholderapi.PlaceholderAPI;
+import com.flyaway.chatmanager.utils.ColorPermissionFilter;
+import com.flyaway.chatmanager.utils.LegacyColorTranslator;
+import com.flyaway.chatmanager.utils.MessageTemplate;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import net.luckperms.api.LuckPerms;
 import net.luckperms.api.LuckPermsProvider;
 import net.luckperms.api.event.EventSubscription;
 import net.luckperms.api.event.user.UserDataRecalculateEvent;
-import net.luckperms.api.cacheddata.CachedMetaData;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.PluginManager;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class ChatMessageRenderer {
 
     private final ConfigManager configManager;
-    private final boolean hasPapi;
     private final boolean hasLuckPerms;
     private final PlaceholderProcessor placeholderProcessor;
+    private final PlaceholderApiCache placeholderApiCache;
     private final MessageManager messageManager;
-    private final Map<UUID, CachedMetaData> metaCache = new ConcurrentHashMap<>();
+    private final PlayerMetaCache playerMetaCache;
+    private final ChatHeaderCache chatHeaderCache;
+    private final ChatMetrics chatMetrics;
+    private final Map<UUID, Integer> colorPermissions = new ConcurrentHashMap<>();
     private EventSubscription<UserDataRecalculateEvent> subscription;
-    private LuckPerms luckPerms;
-
-    private final Map<String, String> legacyColors = new HashMap<>();
 
     public ChatMessageRenderer(ChatManagerPlugin plugin) {
         this.configManager = plugin.getConfigManager();
         this.placeholderProcessor = plugin.getPlaceholderProcessor();
+        this.placeholderApiCache = plugin.getPlaceholderApiCache();
         this.messageManager = plugin.getMessageManager();
+        this.playerMetaCache = plugin.getPlayerMetaCache();
+        this.chatHeaderCache = new ChatHeaderCache(plugin);
+        this.chatMetrics = plugin.getChatMetrics();
 
         PluginManager pm = plugin.getServer().getPluginManager();
-        this.hasPapi = pm.getPlugin("PlaceholderAPI") != null;
         this.hasLuckPerms = pm.getPlugin("LuckPerms") != null;
 
         if (hasLuckPerms) {
-            luckPerms = LuckPermsProvider.get();
+            LuckPerms luckPerms = LuckPermsProvider.get();
             subscription = luckPerms.getEventBus().subscribe(UserDataRecalculateEvent.class, event -> {
-                metaCache.put(event.getUser().getUniqueId(), event.getUser().getCachedData().getMetaData());
+                UUID uuid = event.getUser().getUniqueId();
+                playerMetaCache.invalidate(uuid);
+                colorPermissions.remove(uuid);
+                chatHeaderCache.invalidate(uuid);
             });
         }
 
-        initializeLegacyColors();
-    }
-
-    private void initializeLegacyColors() {
-        legacyColors.put("&0", "<black>");
-        legacyColors.put("&1", "<dark_blue>");
-        legacyColors.put("&2", "<dark_green>");
-        legacyColors.put("&3", "<dark_aqua>");
-        legacyColors.put("&4", "<dark_red>");
-        legacyColors.put("&5", "<dark_purple>");
-        legacyColors.put("&6", "<gold>");
-        legacyColors.put("&7", "<gray>");
-        legacyColors.put("&8", "<dark_gray>");
-        legacyColors.put("&9", "<blue>");
-        legacyColors.put("&a", "<green>");
-        legacyColors.put("&b", "<aqua>");
-        legacyColors.put("&c", "<red>");
-        legacyColors.put("&d", "<light_purple>");
-        legacyColors.put("&e", "<yellow>");
-        legacyColors.put("&f", "<white>");
-        legacyColors.put("&l", "<bold>");
-        legacyColors.put("&o", "<italic>");
-        legacyColors.put("&n", "<underlined>");
-        legacyColors.put("&m", "<strikethrough>");
-        legacyColors.put("&k", "<obfuscated>");
-        legacyColors.put("&r", "<reset>");
     }
 
     public EventSubscription<UserDataRecalculateEvent> getSubscription() {
@@ -88,20 +67,30 @@ public class ChatMessageRenderer {
      * - применяет кастомные плейсхолдеры (processAllPlaceholders)
      */
     public @NotNull Component renderMessage(CommandSender sender, String message) {
-        String result = message;
-        for (Map.Entry<String, String> e : legacyColors.entrySet()) {
-            result = result.replace(e.getKey(), e.getValue());
-        }
+        return renderMessage(sender, message, false);
+    }
 
-        if (hasPapi) {
-            if (sender instanceof Player player) {
-                result = PlaceholderAPI.setPlaceholders(player, result);
-            } else {
-                result = PlaceholderAPI.setPlaceholders(null, result);
-            }
-        }
+    /**
+     * Форматирование сообщений без учёта локали
+     *
+     * @param degraded true — упрощённая отрисовка под нагрузкой (без hover ников)
+     */
+    public @NotNull Component renderMessage(CommandSender sender, String message, boolean degraded) {
+        return renderMessage(sender, message, null, degraded);
+    }
+
+    /**
+     * Форматирование сообщений без учёта локали
+     *
+     * @param state    Состояние отправителя, снятое в основном потоке, или null
+     * @param degraded true — упрощённая отрисовка под нагрузкой (без hover ников)
+     */
+    public @NotNull Component renderMessage(CommandSender sender, String message, PlaceholderProcessor.SenderState state, boolean degraded) {
+        String result = LegacyColorTranslator.translate(message);
+
+        result = placeholderApiCache.setPlaceholders(sender, result);
 
-        return placeholderProcessor.processAllPlaceholders(sender, messageManager.formatMessage(result));
+        return placeholderProcessor.processAllPlaceholders(sender, parse(result), state, degraded);
     }
 
     /**
@@ -113,86 +102,120 @@ public class ChatMessageRenderer {
      * @return Готовый Component для отправки
      */
     public @NotNull Component renderLocaleMessage(Player player, String message, boolean isGlobal) {
-        String messageFormat = configManager.getMessageFormat();
-        String scopeFormat = isGlobal
-                ? configManager.getGlobalFormat()
-                : configManager.getLocalFormat();
-
-        String formattedMessage = applyColorPermissions(player, message);
-
-        String prefix = "";
-        String suffix = "";
-        String usernameColor = "";
-        if (hasLuckPerms) {
-            CachedMetaData meta = metaCache.computeIfAbsent(
-                    player.getUniqueId(),
-                    id -> luckPerms.getPlayerAdapter(Player.class)
-                            .getUser(player)
-                            .getCachedData()
-                            .getMetaData()
-            );
-            prefix = Objects.requireNonNullElse(meta.getPrefix(), "");
-            suffix = Objects.requireNonNullElse(meta.getSuffix(), "");
-            usernameColor = Objects.requireNonNullElse(meta.getMetaValue("username-color"), "");
-        }
+        return renderLocaleMessage(player, message, isGlobal, false);
+    }
 
-        String format = messageFormat
-                .replace("{prefix}", prefix)
-                .replace("{suffix}", suffix)
-                .replace("{username-color}", usernameColor)
-                .replace("{displayname}", PlainTextComponentSerializer.plainText().serialize(player.displayName()))
-                .replace("{name}", player.getName())
-                .replace("{message}", formattedMessage);
+    /**
+     * Форматирование сообщений с учётом локали
+     *
+     * @param player   Игрок, который отправил сообщение
+     * @param message  Текст сообщения (без '!')
+     * @param isGlobal true, если сообщение глобальное
+     * @param degraded true — упрощённая отрисовка под нагрузкой (без hover ников)
+     * @return Готовый Component для отправки
+     */
+    public @NotNull Component renderLocaleMessage(Player player, String message, boolean isGlobal, boolean degraded) {
+        ConfigSnapshot config = configManager.getSnapshot();
 
-        format = scopeFormat.replace("{message}", format);
+        String formattedMessage = applyColorPermissions(player, message);
 
-        if (hasPapi) {
-            format = PlaceholderAPI.setPlaceholders(player, format);
+        long start = chatMetrics.start();
+        PlayerMetaCache.PlayerMeta meta = playerMetaCache.get(player);
+        String[] values = {
+                meta.prefix(),
+                meta.suffix(),
+                meta.usernameColor(),
+                PlainTextComponentSerializer.plainText().serialize(player.displayName()),
+                player.getName(),
+                formattedMessage
+        };
+
+        Component component;
+        MessageTemplate[] parts = config.getChatTemplateParts(isGlobal);
+        if (parts != null) {
+            String headerText = parts[0].fill(values);
+            String trailerText = parts[1].fill(values);
+            chatMetrics.record(ChatMetrics.Stage.FORMAT, start);
+
+            headerText = placeholderApiCache.setPlaceholders(player, headerText);
+            trailerText = placeholderApiCache.setPlaceholders(player, trailerText);
+            String bodyText = placeholderApiCache.setPlaceholders(player, formattedMessage);
+
+            // Шапка берётся из кэша, MiniMessage разбирает только текст сообщения
+            start = chatMetrics.start();
+            ChatHeaderCache.ChatHeader header = chatHeaderCache.get(player.getUniqueId(), isGlobal, headerText, trailerText);
+            if (header.canCompose(bodyText)) {
+                component = header.compose(messageManager.formatMessage(bodyText));
+            } else {
+                // Открытый в шапке градиент должен покрыть сообщение, а закрывающие теги сообщения — закрыть теги шапки
+                component = messageManager.formatMessage(headerText + bodyText + trailerText);
+            }
+            chatMetrics.record(ChatMetrics.Stage.MINIMESSAGE, start);
+        } else {
+            String format = config.getChatTemplate(isGlobal).fill(values);
+            chatMetrics.record(ChatMetrics.Stage.FORMAT, start);
+            format = placeholderApiCache.setPlaceholders(player, format);
+            component = parse(format);
         }
 
-        Component component = messageManager.formatMessage(format);
+        component = placeholderProcessor.processAllPlaceholders(player, component, degraded);
+        return component;
+    }
 
-        component = placeholderProcessor.processAllPlaceholders(player, component);
+    /**
+     * Разбор MiniMessage текста чата. Время пишется в этап MINIMESSAGE только здесь:
+     * служебные сообщения и разбор внутри других этапов в него не попадают
+     */
+    private Component parse(String text) {
+        long start = chatMetrics.start();
+        Component component = messageManager.formatMessage(text);
+        chatMetrics.record(ChatMetrics.Stage.MINIMESSAGE, start);
         return component;
     }
 
     /**
      * Обработка разрешений игрока для цвета и форматирования.
-     * (остается без изменений)
+     * Права берутся из кэшированной маски, текст фильтруется за один проход.
      */
     public String applyColorPermissions(Player player, String message) {
-        String result = message;
-
-        if (player.hasPermission("chatmanager.color.*") || player.hasPermission("chatmanager.format.*")) {
-            for (Map.Entry<String, String> e : legacyColors.entrySet()) {
-                result = result.replace(e.getKey(), e.getValue());
-            }
-            return result;
-        }
+        long start = chatMetrics.start();
+        String result = ColorPermissionFilter.apply(message, getColorPermissions(player));
+        chatMetrics.record(ChatMetrics.Stage.COLOR_FILTER, start);
+        return result;
+    }
 
-        if (!player.hasPermission("chatmanager.color.advanced")) {
-            result = result.replaceAll("<[^>]+>", "");
-        }
+    /**
+     * Маска прав игрока на цвета. С LuckPerms кэшируется до пересчёта прав игрока или выхода,
+     * без него права проверяются каждый раз: их могут менять другие плагины.
+     */
+    private int getColorPermissions(Player player) {
+        if (!hasLuckPerms) return colorPermissionsOf(player);
+        return colorPermissions.computeIfAbsent(player.getUniqueId(), id -> colorPermissionsOf(player));
+    }
 
-        if (!player.hasPermission("chatmanager.color.basic")) {
-            result = result.replaceAll("&[0-9a-f]", "");
+    private static int colorPermissionsOf(Player player) {
+        if (player.hasPermission("chatmanager.color.*") || player.hasPermission("chatmanager.format.*")) {
+            return ColorPermissionFilter.ALL;
         }
 
-        if (!player.hasPermission("chatmanager.format.italic")) {
-            result = result.replace("&o", "");
-        }
-        if (!player.hasPermission("chatmanager.format.bold")) {
-            result = result.replace("&l", "");
-        }
-        if (!player.hasPermission("chatmanager.format.*")) {
-            result = result.replaceAll("&[mnkr]", ""); // зачеркнутый, подчёркнутый, обфускация, reset
-        }
+        int mask = 0;
+        if (player.hasPermission("chatmanager.color.advanced")) mask |= ColorPermissionFilter.ADVANCED;
+        if (player.hasPermission("chatmanager.color.basic")) mask |= ColorPermissionFilter.BASIC;
+        if (player.hasPermission("chatmanager.format.italic")) mask |= ColorPermissionFilter.ITALIC;
+        if (player.hasPermission("chatmanager.format.bold")) mask |= ColorPermissionFilter.BOLD;
+        return mask;
+    }
 
-        for (Map.Entry<String, String> e : legacyColors.entrySet()) {
-            result = result.replace(e.getKey(), e.getValue());
-        }
+    /**
+     * Забывает кэшированные данные игрока (при выходе)
+     */
+    public void invalidate(UUID playerId) {
+        colorPermissions.remove(playerId);
+        chatHeaderCache.invalidate(playerId);
+    }
 
-        return result;
+    public ChatHeaderCache getChatHeaderCache() {
+        return chatHeaderCache;
     }
 
     public String extractPlainMessage(Component component) {
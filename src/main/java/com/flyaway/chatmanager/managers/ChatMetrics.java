@@ -0,0 +1,205 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.ChatManagerPlugin;
+import com.flyaway.chatmanager.utils.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Метрики чата: гистограммы задержек по этапам отрисовки и счётчики сообщений, получателей и снимков.
+ * Замер — два вызова System.nanoTime() и одна атомарная запись, при выключенных метриках — только проверка флага.
+ */
+public class ChatMetrics {
+
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private final ChatManagerPlugin plugin;
+    private final ConfigManager configManager;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder recipients = new LongAdder();
+    private final LongAdder snapshots = new LongAdder();
+
+    public ChatMetrics(ChatManagerPlugin plugin) {
+        this.plugin = plugin;
+        this.configManager = plugin.getConfigManager();
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Начало замера; 0, если метрики выключены
+     */
+    public long start() {
+        return configManager.getSnapshot().isMetricsEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Записывает время этапа, начатого {@link #start()}
+     */
+    public void record(Stage stage, long start) {
+        if (start == 0) return;
+        histograms[stage.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * Сообщение полностью обработано: общее время и количество получателей
+     */
+    public void recordMessage(long start, int recipientCount) {
+        if (start == 0) return;
+        histograms[Stage.TOTAL.ordinal()].record(System.nanoTime() - start);
+        messages.increment();
+        recipients.add(recipientCount);
+    }
+
+    public void recordSnapshot() {
+        snapshots.increment();
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    public long getRecipients() {
+        return recipients.sum();
+    }
+
+    public long getSnapshots() {
+        return snapshots.sum();
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        messages.reset();
+        recipients.reset();
+        snapshots.reset();
+    }
+
+    /**
+     * Выгружает метрики в файл в текстовом формате Prometheus (для node_exporter textfile collector).
+     * Файл заменяется атомарно, чтобы сборщик не прочитал его наполовину записанным.
+     */
+    public void exportPrometheus() {
+        String fileName = configManager.getSnapshot().getMetricsPrometheusFile();
+        if (fileName.isEmpty()) return;
+
+        Path target = new File(plugin.getDataFolder(), fileName).toPath();
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.writeString(temp, toPrometheus(), StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Не удалось выгрузить метрики в " + target, e);
+        }
+    }
+
+    private String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+
+        out.append("# TYPE chatmanager_stage_seconds summary\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = getHistogram(stage);
+            for (double quantile : QUANTILES) {
+                out.append("chatmanager_stage_seconds{stage=\"").append(stage.getName())
+                        .append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(histogram.quantile(quantile))).append('\n');
+            }
+            out.append("chatmanager_stage_seconds_sum{stage=\"").append(stage.getName()).append("\"} ")
+                    .append(seconds(histogram.getSum())).append('\n');
+            out.append("chatmanager_stage_seconds_count{stage=\"").append(stage.getName()).append("\"} ")
+                    .append(histogram.getCount()).append('\n');
+        }
+
+        counter(out, "chatmanager_messages_total", getMessages());
+        counter(out, "chatmanager_recipients_total", getRecipients());
+        counter(out, "chatmanager_inventory_snapshots_total", getSnapshots());
+        ChatRateLimiter rateLimiter = plugin.getChatRateLimiter();
+        counter(out, "chatmanager_rate_limited_total", rateLimiter.getLimited());
+        counter(out, "chatmanager_duplicates_total", rateLimiter.getDuplicates());
+
+        ChatPipeline pipeline = plugin.getChatPipeline();
+        gauge(out, "chatmanager_pipeline_pending", pipeline.getPending());
+        counter(out, "chatmanager_pipeline_dropped_total", pipeline.getDropped());
+        counter(out, "chatmanager_pipeline_degraded_total", pipeline.getDegraded());
+        gauge(out, "chatmanager_inventory_snapshots", plugin.getPlaceholderProcessor().getInventorySnapshotCount());
+
+        ChatBridge bridge = plugin.getChatBridge();
+        counter(out, "chatmanager_bridge_sent_total", bridge.getSent());
+        counter(out, "chatmanager_bridge_received_total", bridge.getReceived());
+        counter(out, "chatmanager_bridge_duplicates_total", bridge.getDuplicates());
+
+        ChatLogWriter chatLog = plugin.getChatLogWriter();
+        counter(out, "chatmanager_chat_log_written_total", chatLog.getWritten());
+        counter(out, "chatmanager_chat_log_dropped_total", chatLog.getDropped());
+
+        PlaceholderApiCache papi = plugin.getPlaceholderApiCache();
+        counter(out, "chatmanager_papi_cache_hits_total", papi.getHits());
+        counter(out, "chatmanager_papi_cache_misses_total", papi.getMisses());
+        PlayerMetaCache meta = plugin.getPlayerMetaCache();
+        counter(out, "chatmanager_meta_cache_hits_total", meta.getHits());
+        counter(out, "chatmanager_meta_cache_misses_total", meta.getMisses());
+        counter(out, "chatmanager_meta_cache_evictions_total", meta.getEvictions());
+        ChatHeaderCache headers = plugin.getChatMessageRenderer().getChatHeaderCache();
+        counter(out, "chatmanager_header_cache_hits_total", headers.getHits());
+        counter(out, "chatmanager_header_cache_misses_total", headers.getMisses());
+
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, long value) {
+        out.append("# TYPE ").append(name).append(" counter\n").append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, long value) {
+        out.append("# TYPE ").append(name).append(" gauge\n").append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    public enum Stage {
+        // Фильтр цветов по правам игрока
+        COLOR_FILTER("color"),
+        // Раскрытие PlaceholderAPI
+        PAPI("papi"),
+        // Мета LuckPerms и заполнение формата
+        FORMAT("format"),
+        // Разбор MiniMessage
+        MINIMESSAGE("minimessage"),
+        // Замены в сообщении: команды, кастомные плейсхолдеры, ники
+        PLACEHOLDERS("placeholders"),
+        // Уведомления упомянутым игрокам
+        MENTIONS("mentions"),
+        // Рассылка получателям
+        DELIVERY("delivery"),
+        // Сообщение целиком
+        TOTAL("total");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
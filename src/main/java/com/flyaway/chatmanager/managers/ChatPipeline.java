@@ -0,0 +1,112 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.ChatManagerPlugin;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Конвейер отрисовки сообщений чата на отдельном executor.
+ * - сообщения одного игрока отрисовываются строго по порядку
+ * - очередь ограничена: при переполнении новые сообщения отбрасываются
+ * - при высокой загрузке сообщения рисуются в упрощённом виде (без hover ников)
+ */
+public class ChatPipeline {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final ChatManagerPlugin plugin;
+    private final ConfigManager configManager;
+    private final ExecutorService executor;
+    private final Map<UUID, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder degraded = new LongAdder();
+
+    public ChatPipeline(ChatManagerPlugin plugin) {
+        this.plugin = plugin;
+        this.configManager = plugin.getConfigManager();
+
+        ConfigSnapshot config = configManager.getSnapshot();
+        if (config.getRenderExecutor().equalsIgnoreCase("fixed")) {
+            AtomicInteger counter = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(config.getRenderThreads(), r -> {
+                Thread thread = new Thread(r, "ChatManager-Render-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ChatManager-Render-", 1).factory());
+        }
+    }
+
+    /**
+     * Ставит задачу отрисовки в очередь игрока.
+     *
+     * @param owner UUID игрока, задачи которого выполняются по порядку
+     * @param task  Задача; получает true, если её нужно выполнить в упрощённом виде
+     * @return false, если очередь переполнена и задача отброшена
+     */
+    public boolean submit(UUID owner, RenderTask task) {
+        ConfigSnapshot config = configManager.getSnapshot();
+        int capacity = config.getRenderQueueSize();
+
+        int queued = pending.incrementAndGet();
+        if (queued > capacity) {
+            pending.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+
+        boolean degrade = queued > capacity * config.getRenderDegradeThreshold();
+        if (degrade) degraded.increment();
+
+        Runnable runnable = () -> {
+            try {
+                task.render(degrade);
+            } catch (Throwable t) {
+                plugin.getLogger().log(Level.WARNING, "Ошибка при отрисовке сообщения чата", t);
+            } finally {
+                pending.decrementAndGet();
+            }
+        };
+
+        CompletableFuture<Void> tail = tails.compute(owner, (id, previous) ->
+                (previous == null ? DONE : previous).thenRunAsync(runnable, executor));
+        tail.whenComplete((v, e) -> tails.remove(owner, tail));
+        return true;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getDegraded() {
+        return degraded.sum();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    public interface RenderTask {
+        void render(boolean degraded);
+    }
+}
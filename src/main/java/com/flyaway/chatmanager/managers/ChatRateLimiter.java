@@ -0,0 +1,221 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.ChatManagerPlugin;
+import com.flyaway.chatmanager.utils.RateBucket;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничение частоты сообщений до отрисовки.
+ * - у каждого игрока свой бакет на каждый канал: публичный чат, личные сообщения, снимки инвентарей
+ * - лимиты задаются по группам (право chatmanager.ratelimit.<группа>), иначе группа default
+ * - повтор одного из последних сообщений в публичный чат отклоняется по хэшу текста
+ */
+public class ChatRateLimiter {
+
+    public static final String BYPASS_PERMISSION = "chatmanager.ratelimit.bypass";
+    private static final String DEFAULT_GROUP = "default";
+
+    private final ConfigManager configManager;
+    private final Map<UUID, PlayerState> states = new ConcurrentHashMap<>();
+    private final LongAdder limited = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    public ChatRateLimiter(ChatManagerPlugin plugin) {
+        this.configManager = plugin.getConfigManager();
+    }
+
+    /**
+     * Проверка сообщения в публичный чат: частота и повтор
+     */
+    public Result checkChat(Player player, String message) {
+        ConfigSnapshot config = configManager.getSnapshot();
+        if (!config.isRateLimitEnabled() || player.hasPermission(BYPASS_PERMISSION)) return Result.ALLOWED;
+
+        PlayerState state = stateOf(player);
+        long now = System.nanoTime();
+        int history = config.getDuplicateHistory();
+        long hash = hash(message);
+        if (history > 0 && state.isDuplicate(hash, now, history, config.getDuplicateWindowNanos())) {
+            duplicates.increment();
+            return Result.DUPLICATE;
+        }
+        if (!acquire(config, player, state, Channel.CHAT, now)) return Result.RATE_LIMITED;
+
+        // Запоминаем только пропущенное сообщение: отклонённое по частоте можно повторить, когда бакет наполнится
+        if (history > 0) state.record(hash, now, history);
+        return Result.ALLOWED;
+    }
+
+    /**
+     * Проверка частоты по каналу без проверки на повтор
+     */
+    public boolean tryAcquire(Player player, Channel channel) {
+        ConfigSnapshot config = configManager.getSnapshot();
+        if (!config.isRateLimitEnabled() || player.hasPermission(BYPASS_PERMISSION)) return true;
+
+        return acquire(config, player, stateOf(player), channel, System.nanoTime());
+    }
+
+    private boolean acquire(ConfigSnapshot config, Player player, PlayerState state, Channel channel, long now) {
+        Limit limit = groupOf(config, player).limits()[channel.ordinal()];
+        if (state.buckets[channel.ordinal()].tryAcquire(now, limit.intervalNanos(), limit.burst())) return true;
+
+        limited.increment();
+        return false;
+    }
+
+    private static Group groupOf(ConfigSnapshot config, Player player) {
+        List<Group> groups = config.getRateLimitGroups();
+        // Последняя группа — default
+        for (int i = 0; i < groups.size() - 1; i++) {
+            Group group = groups.get(i);
+            if (player.hasPermission(group.permission())) return group;
+        }
+        return groups.get(groups.size() - 1);
+    }
+
+    private PlayerState stateOf(Player player) {
+        return states.computeIfAbsent(player.getUniqueId(), id -> new PlayerState());
+    }
+
+    public void invalidate(UUID uuid) {
+        states.remove(uuid);
+    }
+
+    public long getLimited() {
+        return limited.sum();
+    }
+
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    // FNV-1a по тексту без регистра и пробелов: "Привет  ВСЕМ" и "привет всем" — повтор
+    private static long hash(String message) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (Character.isWhitespace(c)) continue;
+            hash ^= Character.toLowerCase(c);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Разбирает секцию rate-limit.groups; группа default всегда есть и стоит последней,
+     * каналы, не заданные в группе, берутся из default
+     */
+    static List<Group> loadGroups(ConfigurationSection section) {
+        Limit[] defaults = new Limit[Channel.values().length];
+        for (Channel channel : Channel.values()) {
+            defaults[channel.ordinal()] = loadLimit(section, DEFAULT_GROUP + "." + channel.getKey(), channel.getDefaultLimit());
+        }
+
+        List<Group> groups = new ArrayList<>();
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                if (name.equalsIgnoreCase(DEFAULT_GROUP)) continue;
+
+                Limit[] limits = new Limit[defaults.length];
+                for (Channel channel : Channel.values()) {
+                    limits[channel.ordinal()] = loadLimit(section, name + "." + channel.getKey(), defaults[channel.ordinal()]);
+                }
+                groups.add(new Group(name, "chatmanager.ratelimit." + name.toLowerCase(), limits));
+            }
+        }
+        groups.add(new Group(DEFAULT_GROUP, "chatmanager.ratelimit." + DEFAULT_GROUP, defaults));
+        return Collections.unmodifiableList(groups);
+    }
+
+    private static Limit loadLimit(ConfigurationSection section, String path, Limit fallback) {
+        if (section == null || !section.isConfigurationSection(path)) return fallback;
+
+        int burst = Math.max(1, section.getInt(path + ".burst", fallback.burst()));
+        if (!section.contains(path + ".rate")) return new Limit(fallback.intervalNanos(), burst);
+        return Limit.of(section.getDouble(path + ".rate", 0), burst);
+    }
+
+    private static final class PlayerState {
+        private final RateBucket[] buckets = new RateBucket[Channel.values().length];
+        // Хэши и время последних сообщений по кругу; гонки допустимы — это лишь фильтр флуда
+        private final AtomicLongArray recentHashes = new AtomicLongArray(ConfigSnapshot.MAX_DUPLICATE_HISTORY);
+        private final AtomicLongArray recentTimes = new AtomicLongArray(ConfigSnapshot.MAX_DUPLICATE_HISTORY);
+        private final AtomicInteger next = new AtomicInteger();
+
+        private PlayerState() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new RateBucket();
+            }
+        }
+
+        private boolean isDuplicate(long hash, long now, int history, long windowNanos) {
+            for (int i = 0; i < history; i++) {
+                long time = recentTimes.get(i);
+                if (time != 0 && recentHashes.get(i) == hash && now - time <= windowNanos) return true;
+            }
+            return false;
+        }
+
+        private void record(long hash, long now, int history) {
+            int slot = Math.floorMod(next.getAndIncrement(), history);
+            recentHashes.set(slot, hash);
+            recentTimes.set(slot, now == 0 ? 1 : now);
+        }
+    }
+
+    public enum Result {
+        ALLOWED,
+        RATE_LIMITED,
+        DUPLICATE
+    }
+
+    public enum Channel {
+        // Публичный чат и /bc
+        CHAT("chat", Limit.of(1.0, 4)),
+        // /msg, /tell, /w, /m
+        PRIVATE("private", Limit.of(1.0, 4)),
+        // Снимки инвентаря, эндер-сундука и предмета в руке
+        SNAPSHOT("snapshots", Limit.of(0.2, 2));
+
+        private final String key;
+        private final Limit defaultLimit;
+
+        Channel(String key, Limit defaultLimit) {
+            this.key = key;
+            this.defaultLimit = defaultLimit;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Limit getDefaultLimit() {
+            return defaultLimit;
+        }
+    }
+
+    /**
+     * @param intervalNanos Интервал между событиями; 0 — без ограничения
+     * @param burst         Сколько событий можно подряд
+     */
+    public record Limit(long intervalNanos, int burst) {
+        public static Limit of(double perSecond, int burst) {
+            return new Limit(perSecond > 0 ? (long) (1_000_000_000L / perSecond) : 0, burst);
+        }
+    }
+
+    public record Group(String name, String permission, Limit[] limits) {
+    }
+}
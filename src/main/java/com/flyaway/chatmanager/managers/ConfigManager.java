@@ -1,17 +1,26 @@
 package com.flyaway.chatmanager.managers;
 
 import com.flyaway.chatmanager.ChatManagerPlugin;
+import com.flyaway.chatmanager.utils.MessageTemplate;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.bukkit.configuration.file.FileConfiguration;
 
-import java.util.HashMap;
 import java.util.Map;
 
 public class ConfigManager {
 
     private final ChatManagerPlugin plugin;
-    private FileConfiguration config;
-    private final Map<String, PlaceholderConfig> placeholderConfigs = new HashMap<>();
-    private PlaceholderConfig commandConfig;
+
+    // Текущий снимок настроек, заменяется целиком при перезагрузке
+    private volatile ConfigSnapshot snapshot;
+
+    // Порядок значений для заполнения шаблонов формата сообщения
+    public static final String[] FORMAT_SLOTS = {"prefix", "suffix", "username-color", "displayname", "name", "message"};
+    // Номер слота {message} в FORMAT_SLOTS
+    public static final int MESSAGE_SLOT = 5;
 
     public ConfigManager(ChatManagerPlugin plugin) {
         this.plugin = plugin;
@@ -19,129 +28,137 @@ public class ConfigManager {
 
     public void loadConfig() {
         plugin.saveDefaultConfig();
-        config = plugin.getConfig();
-        loadPlaceholderConfigs();
-        loadCommandConfig();
+        snapshot = new ConfigSnapshot(plugin.getConfig(), plugin.getLogger());
     }
 
     public void reloadConfig() {
         plugin.reloadConfig();
-        config = plugin.getConfig();
-        placeholderConfigs.clear();
-        loadPlaceholderConfigs();
-        loadCommandConfig();
+        snapshot = new ConfigSnapshot(plugin.getConfig(), plugin.getLogger());
     }
 
-    private void loadCommandConfig() {
-        if (!config.getBoolean("commands.enabled")) {
-            commandConfig = null;
-        } else {
-            commandConfig = new PlaceholderConfig(
-                    config.getString("commands.display-text", "<aqua>[<yellow>{command}<aqua>]<reset>"),
-                    config.getString("commands.hover-text", "<yellow>Нажмите, чтобы использовать команду!"),
-                    config.getString("commands.click-action", "SUGGEST_COMMAND"),
-                    "{command}",
-                    null,
-                    config.getString("commands.description", "Преобразует команды в квадратных скобках в кликабельные элементы")
-            );
-        }
-    }
-
-    private void loadPlaceholderConfigs() {
-        if (!config.contains("custom-placeholders")) {
-            return;
-        }
-
-        for (String key : config.getConfigurationSection("custom-placeholders").getKeys(false)) {
-            String path = "custom-placeholders." + key;
-
-            PlaceholderConfig placeholder = new PlaceholderConfig(
-                    config.getString(path + ".display-text", "display-" + key),
-                    config.getString(path + ".hover-text", "hover-" + key),
-                    config.getString(path + ".click-action"),
-                    config.getString(path + ".click-value"),
-                    config.getString(path + ".inventory-title", "title-" + key),
-                    config.getString(path + ".description", "description-" + key)
-            );
-
-            placeholderConfigs.put(key.toLowerCase(), placeholder);
-        }
+    /**
+     * Текущий снимок настроек. Для нескольких чтений в рамках одного сообщения
+     * лучше взять снимок один раз, чтобы значения не поменялись посередине.
+     */
+    public ConfigSnapshot getSnapshot() {
+        return snapshot;
     }
 
     // Геттеры
     public Integer getLocalChatRadius() {
-        return config.getInt("local-chat-radius", 100);
+        return snapshot.getLocalChatRadius();
     }
 
     public String getMessageFormat() {
-        return config.getString("message-format", "{prefix}{username-color}{displayname}{suffix}<dark_gray> »<reset> {message}");
+        return snapshot.getMessageFormat();
     }
 
     public String getLocalFormat() {
-        return config.getString("formats.local", "<yellow>Ⓛ</yellow> {message}");
+        return snapshot.getLocalFormat();
     }
 
     public String getGlobalFormat() {
-        return config.getString("formats.global", "<green>Ⓖ</green> {message}");
+        return snapshot.getGlobalFormat();
+    }
+
+    /**
+     * Скомпилированный формат сообщения, уже вложенный в формат локального/глобального чата.
+     * Значения для заполнения — в порядке {@link #FORMAT_SLOTS}.
+     */
+    public MessageTemplate getChatTemplate(boolean isGlobal) {
+        return snapshot.getChatTemplate(isGlobal);
     }
 
     public Integer getInvExpiredMinutes() {
-        return config.getInt("inv-expired-minutes", 3);
+        return snapshot.getInvExpiredMinutes();
     }
 
     public String getMessage(String key) {
-        String message = config.getString("messages." + key, "<red>message." + key + " not-found");
-        return message.replaceAll("\\s+$", "");
+        return snapshot.getMessage(key);
     }
 
     public Map<String, PlaceholderConfig> getPlaceholderConfigs() {
-        return placeholderConfigs;
+        return snapshot.getPlaceholderConfigs();
     }
 
     public boolean isPlayerHoverEnabled() {
-        return config.getBoolean("player-hover.enabled", true);
+        return snapshot.isPlayerHoverEnabled();
     }
 
     public boolean isPlayerMentionEnabled() {
-        return config.getBoolean("player-mention.enabled", true);
+        return snapshot.isPlayerMentionEnabled();
     }
 
     public PlaceholderConfig getCommandConfig() {
-        return commandConfig;
+        return snapshot.getCommandConfig();
     }
 
     public String getLanguage() {
-        return config.getString("language", "ru_RU");
+        return snapshot.getLanguage();
     }
 
     public FileConfiguration getConfig() {
-        return config;
+        return plugin.getConfig();
     }
 
     // Конфиг для плейсхолдеров
     public static class PlaceholderConfig {
-        private final String displayText;
-        private final String hoverText;
+        private final PlaceholderText displayText;
+        private final PlaceholderText hoverText;
         private final String clickAction;
-        private final String clickValue;
-        private final String inventoryTitle;
+        private final PlaceholderText clickValue;
+        private final PlaceholderText inventoryTitle;
         private final String description;
 
+        // Части, разобранные заранее при загрузке конфигурации
+        private final PlaceholderProcessor.ClickType clickType;
+        private final HoverEvent<Component> staticHoverEvent;
+        private final ClickEvent staticClickEvent;
+
         public PlaceholderConfig(String displayText, String hoverText, String clickAction,
                                  String clickValue, String inventoryTitle, String description) {
-            this.displayText = displayText;
-            this.hoverText = hoverText;
+            this.displayText = new PlaceholderText(displayText);
+            this.hoverText = new PlaceholderText(hoverText);
             this.clickAction = clickAction;
-            this.clickValue = clickValue;
-            this.inventoryTitle = inventoryTitle;
+            this.clickValue = new PlaceholderText(clickValue);
+            this.inventoryTitle = new PlaceholderText(inventoryTitle);
             this.description = description;
+
+            this.clickType = parseClickType(clickAction);
+            this.staticHoverEvent = this.hoverText.isDynamic() || this.hoverText.isEmpty()
+                    ? null
+                    : HoverEvent.showText(this.hoverText.getComponent());
+            this.staticClickEvent = this.clickValue.isDynamic() ? null : createClickEvent(clickType, this.clickValue.getRaw());
+        }
+
+        private static PlaceholderProcessor.ClickType parseClickType(String action) {
+            if (action == null) return null;
+            try {
+                return PlaceholderProcessor.ClickType.valueOf(action.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
         }
 
-        public String getDisplayText() {
+        /**
+         * Click event для действий, не связанных с инвентарями
+         */
+        public static ClickEvent createClickEvent(PlaceholderProcessor.ClickType type, String value) {
+            if (type == null) return null;
+            return switch (type) {
+                case OPEN_URL -> ClickEvent.openUrl(value);
+                case RUN_COMMAND -> ClickEvent.runCommand(value);
+                case SUGGEST_COMMAND -> ClickEvent.suggestCommand(value);
+                case COPY_TO_CLIPBOARD -> ClickEvent.copyToClipboard(value);
+                default -> null;
+            };
+        }
+
+        public PlaceholderText getDisplayText() {
             return displayText;
         }
 
-        public String getHoverText() {
+        public PlaceholderText getHoverText() {
             return hoverText;
         }
 
@@ -149,16 +166,94 @@ public class ConfigManager {
             return clickAction;
         }
 
-        public String getClickValue() {
+        public PlaceholderText getClickValue() {
             return clickValue;
         }
 
-        public String getInventoryTitle() {
+        public PlaceholderText getInventoryTitle() {
             return inventoryTitle;
         }
 
         public String getDescription() {
             return description;
         }
+
+        /**
+         * Тип действия по клику; null, если действие не задано или неизвестно
+         */
+        public PlaceholderProcessor.ClickType getClickType() {
+            return clickType;
+        }
+
+        public boolean hasInvalidClickAction() {
+            return clickAction != null && clickType == null;
+        }
+
+        /**
+         * Готовый hover, если текст статический и непустой, иначе null
+         */
+        public HoverEvent<Component> getStaticHoverEvent() {
+            return staticHoverEvent;
+        }
+
+        /**
+         * Готовый click event, если значение статическое, иначе null
+         */
+        public ClickEvent getStaticClickEvent() {
+            return staticClickEvent;
+        }
+    }
+
+    /**
+     * Текст плейсхолдера, заранее разобранный при загрузке.
+     * Статический текст сразу превращается в Component, динамический
+     * (с {player}, {command}, {item} или %papi%) — в шаблон со слотами.
+     */
+    public static class PlaceholderText {
+        public static final int SLOT_COMMAND = 0;
+        public static final int SLOT_PLAYER = 1;
+        public static final int SLOT_ITEM = 2;
+
+        private final String raw;
+        private final boolean dynamic;
+        private final MessageTemplate template;
+        private final Component component;
+
+        public PlaceholderText(String raw) {
+            this.raw = raw;
+            this.template = raw == null ? null : MessageTemplate.compile(raw, "command", "player", "item");
+            this.dynamic = template != null && (!template.isConstant() || raw.indexOf('%') >= 0);
+            this.component = raw == null || dynamic ? null : MiniMessage.miniMessage().deserialize(raw);
+        }
+
+        public String getRaw() {
+            return raw;
+        }
+
+        public boolean isEmpty() {
+            return raw == null || raw.isEmpty();
+        }
+
+        public boolean isDynamic() {
+            return dynamic;
+        }
+
+        public boolean usesItem() {
+            return template != null && template.hasSlot(SLOT_ITEM);
+        }
+
+        /**
+         * Шаблон со слотами в порядке {@link #SLOT_COMMAND}, {@link #SLOT_PLAYER}, {@link #SLOT_ITEM}
+         */
+        public MessageTemplate getTemplate() {
+            return template;
+        }
+
+        /**
+         * Готовый компонент для статического текста, иначе null
+         */
+        public Component getComponent() {
+            return component;
+        }
     }
 }
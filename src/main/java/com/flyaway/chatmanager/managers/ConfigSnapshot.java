@@ -0,0 +1,470 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.utils.MessageTemplate;
+import com.flyaway.chatmanager.utils.MiniMessageTags;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Неизменяемый снимок настроек плагина.
+ * Собирается целиком при загрузке/перезагрузке и публикуется одной ссылкой,
+ * поэтому async-потоки чата всегда видят согласованный набор значений.
+ */
+public final class ConfigSnapshot {
+
+    // Больше последних сообщений для проверки на повтор не храним
+    static final int MAX_DUPLICATE_HISTORY = 16;
+
+    private final String language;
+    private final List<String> languages;
+    private final int localChatRadius;
+    private final int invExpiredMinutes;
+    private final int invMaxSnapshots;
+    private final boolean playerHoverEnabled;
+    private final boolean playerMentionEnabled;
+    private final String messageFormat;
+    private final String localFormat;
+    private final String globalFormat;
+    private final String renderExecutor;
+    private final int renderThreads;
+    private final int renderQueueSize;
+    private final double renderDegradeThreshold;
+    private final boolean placeholderCacheEnabled;
+    private final long placeholderDefaultTtl;
+    private final int placeholderCacheMaxSize;
+    private final Map<String, Long> placeholderTtls;
+    private final Set<String> placeholderNoCache;
+    private final int metaCacheMaxSize;
+    private final long metaCacheIdleMillis;
+    private final boolean metricsEnabled;
+    private final String metricsPrometheusFile;
+    private final int metricsExportInterval;
+    private final MessageTemplate localTemplate;
+    private final MessageTemplate globalTemplate;
+    private final int historySize;
+    private final boolean chatLogEnabled;
+    private final boolean chatLogPrivateMessages;
+    private final long chatLogSegmentBytes;
+    private final int chatLogMaxSegments;
+    private final int chatLogQueueSize;
+    private final boolean networkEnabled;
+    private final String networkServerName;
+    private final String networkTransport;
+    private final String networkTcpBind;
+    private final List<String> networkTcpPeers;
+    private final String networkTcpSecret;
+    private final int networkDedupSize;
+    private final boolean rateLimitEnabled;
+    private final List<ChatRateLimiter.Group> rateLimitGroups;
+    private final int duplicateHistory;
+    private final long duplicateWindowNanos;
+    private final MessageTemplate[] localParts;
+    private final MessageTemplate[] globalParts;
+    private final Map<String, String> messages;
+    private final Component bypassPrefix;
+    private final ConfigManager.PlaceholderText playerHoverText;
+    private final Map<String, ConfigManager.PlaceholderConfig> placeholderConfigs;
+    private final ConfigManager.PlaceholderConfig commandConfig;
+
+    ConfigSnapshot(FileConfiguration config, Logger logger) {
+        this.language = config.getString("language", "ru_RU");
+        this.languages = List.copyOf(config.getStringList("languages"));
+        this.localChatRadius = config.getInt("local-chat-radius", 100);
+        this.invExpiredMinutes = config.getInt("inv-expired-minutes", 3);
+        this.invMaxSnapshots = Math.max(1, config.getInt("inv-max-snapshots", 500));
+        this.playerHoverEnabled = config.getBoolean("player-hover.enabled", true);
+        this.playerMentionEnabled = config.getBoolean("player-mention.enabled", true);
+        this.messageFormat = config.getString("message-format", "{prefix}{username-color}{displayname}{suffix}<dark_gray> »<reset> {message}");
+        this.localFormat = config.getString("formats.local", "<yellow>Ⓛ</yellow> {message}");
+        this.globalFormat = config.getString("formats.global", "<green>Ⓖ</green> {message}");
+
+        this.renderExecutor = config.getString("render-pipeline.executor", "virtual");
+        this.renderThreads = Math.max(1, config.getInt("render-pipeline.threads", 2));
+        this.renderQueueSize = Math.max(1, config.getInt("render-pipeline.queue-size", 1000));
+        this.renderDegradeThreshold = config.getDouble("render-pipeline.degrade-threshold", 0.75);
+
+        this.placeholderCacheEnabled = config.getBoolean("placeholder-cache.enabled", true);
+        this.placeholderDefaultTtl = config.getLong("placeholder-cache.default-ttl-ms", 1000);
+        this.placeholderCacheMaxSize = Math.max(1, config.getInt("placeholder-cache.max-size", 10000));
+        this.placeholderTtls = loadPlaceholderTtls(config);
+        this.placeholderNoCache = Set.copyOf(config.getStringList("placeholder-cache.no-cache"));
+
+        this.metaCacheMaxSize = Math.max(1, config.getInt("meta-cache.max-size", 1000));
+        this.metaCacheIdleMillis = Math.max(1, config.getInt("meta-cache.idle-minutes", 30)) * 60_000L;
+
+        this.metricsEnabled = config.getBoolean("metrics.enabled", true);
+        this.metricsPrometheusFile = config.getString("metrics.prometheus-file", "");
+        this.metricsExportInterval = Math.max(1, config.getInt("metrics.export-interval-seconds", 15));
+
+        this.historySize = Math.max(1, config.getInt("history.size", 1000));
+
+        this.chatLogEnabled = config.getBoolean("chat-log.enabled", false);
+        this.chatLogPrivateMessages = config.getBoolean("chat-log.private-messages", false);
+        this.chatLogSegmentBytes = Math.max(1, config.getLong("chat-log.segment-size-mb", 16)) * 1024 * 1024;
+        this.chatLogMaxSegments = Math.max(1, config.getInt("chat-log.max-segments", 64));
+        this.chatLogQueueSize = Math.max(1, config.getInt("chat-log.queue-size", 10000));
+
+        this.networkEnabled = config.getBoolean("network.enabled", false);
+        this.networkServerName = config.getString("network.server-name", "server");
+        this.networkTransport = config.getString("network.transport", "plugin-message");
+        this.networkTcpBind = config.getString("network.tcp.bind", "");
+        this.networkTcpPeers = List.copyOf(config.getStringList("network.tcp.peers"));
+        this.networkTcpSecret = config.getString("network.tcp.secret", "");
+        this.networkDedupSize = Math.max(1, config.getInt("network.dedup-size", 4096));
+
+        this.rateLimitEnabled = config.getBoolean("rate-limit.enabled", true);
+        this.rateLimitGroups = ChatRateLimiter.loadGroups(config.getConfigurationSection("rate-limit.groups"));
+        this.duplicateHistory = Math.clamp(config.getInt("rate-limit.duplicates.history", 3), 0, MAX_DUPLICATE_HISTORY);
+        this.duplicateWindowNanos = Math.max(0, config.getLong("rate-limit.duplicates.window-seconds", 30)) * 1_000_000_000L;
+
+        MessageTemplate messageTemplate = MessageTemplate.compile(messageFormat, ConfigManager.FORMAT_SLOTS);
+        this.localTemplate = messageTemplate.wrap(localFormat, "message");
+        this.globalTemplate = messageTemplate.wrap(globalFormat, "message");
+        this.localParts = splitAtMessage(localTemplate);
+        this.globalParts = splitAtMessage(globalTemplate);
+
+        this.messages = loadMessages(config);
+        this.bypassPrefix = MiniMessage.miniMessage().deserialize(getMessage("bypass-prefix"));
+        this.playerHoverText = new ConfigManager.PlaceholderText(getMessage("player-hover-text"));
+        this.placeholderConfigs = loadPlaceholderConfigs(config);
+        this.commandConfig = loadCommandConfig(config);
+
+        placeholderConfigs.forEach((key, placeholder) -> {
+            if (placeholder.hasInvalidClickAction()) {
+                logger.warning("Неизвестный тип click-action у [" + key + "]: " + placeholder.getClickAction());
+            }
+        });
+        if (commandConfig != null && commandConfig.hasInvalidClickAction()) {
+            logger.warning("Неизвестный тип click-action у commands: " + commandConfig.getClickAction());
+        }
+    }
+
+    /**
+     * Делит формат по {message}; null, если шапку нельзя разбирать отдельно от сообщения.
+     * Здесь проверяются только теги самого формата, теги из префиксов проверяет {@link ChatHeaderCache}
+     */
+    private static MessageTemplate[] splitAtMessage(MessageTemplate template) {
+        MessageTemplate[] parts = template.split(ConfigManager.MESSAGE_SLOT);
+        if (parts == null) return null;
+
+        String[] empty = new String[ConfigManager.FORMAT_SLOTS.length];
+        Arrays.fill(empty, "");
+        return MiniMessageTags.openAtEnd(parts[0].fill(empty)) == MiniMessageTags.Open.SPAN ? null : parts;
+    }
+
+    private static Map<String, String> loadMessages(FileConfiguration config) {
+        Map<String, String> messages = new HashMap<>();
+        ConfigurationSection section = config.getConfigurationSection("messages");
+        if (section == null) return Collections.emptyMap();
+
+        for (String key : section.getKeys(false)) {
+            String message = section.getString(key);
+            if (message != null) {
+                messages.put(key, trimTrailingWhitespace(message));
+            }
+        }
+        return Collections.unmodifiableMap(messages);
+    }
+
+    private static Map<String, Long> loadPlaceholderTtls(FileConfiguration config) {
+        Map<String, Long> ttls = new HashMap<>();
+        ConfigurationSection section = config.getConfigurationSection("placeholder-cache.ttl-ms");
+        if (section == null) return Collections.emptyMap();
+
+        for (String identifier : section.getKeys(false)) {
+            ttls.put(identifier, section.getLong(identifier, 0));
+        }
+        return Collections.unmodifiableMap(ttls);
+    }
+
+    private static ConfigManager.PlaceholderConfig loadCommandConfig(FileConfiguration config) {
+        if (!config.getBoolean("commands.enabled")) {
+            return null;
+        }
+
+        return new ConfigManager.PlaceholderConfig(
+                config.getString("commands.display-text", "<aqua>[<yellow>{command}<aqua>]<reset>"),
+                config.getString("commands.hover-text", "<yellow>Нажмите, чтобы использовать команду!"),
+                config.getString("commands.click-action", "SUGGEST_COMMAND"),
+                "{command}",
+                null,
+                config.getString("commands.description", "Преобразует команды в квадратных скобках в кликабельные элементы")
+        );
+    }
+
+    private static Map<String, ConfigManager.PlaceholderConfig> loadPlaceholderConfigs(FileConfiguration config) {
+        Map<String, ConfigManager.PlaceholderConfig> placeholders = new LinkedHashMap<>();
+        ConfigurationSection section = config.getConfigurationSection("custom-placeholders");
+        if (section == null) return Collections.emptyMap();
+
+        for (String key : section.getKeys(false)) {
+            String path = "custom-placeholders." + key;
+
+            ConfigManager.PlaceholderConfig placeholder = new ConfigManager.PlaceholderConfig(
+                    config.getString(path + ".display-text", "display-" + key),
+                    config.getString(path + ".hover-text", "hover-" + key),
+                    config.getString(path + ".click-action"),
+                    config.getString(path + ".click-value"),
+                    config.getString(path + ".inventory-title", "title-" + key),
+                    config.getString(path + ".description", "description-" + key)
+            );
+
+            placeholders.put(key.toLowerCase(), placeholder);
+        }
+        return Collections.unmodifiableMap(placeholders);
+    }
+
+    // То же, что replaceAll("\\s+$", ""), но без регулярного выражения
+    private static String trimTrailingWhitespace(String text) {
+        int end = text.length();
+        while (end > 0 && " \t\n\u000B\f\r".indexOf(text.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    /**
+     * Сколько последних сообщений хранить (округляется вверх до степени двойки)
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    public boolean isChatLogEnabled() {
+        return chatLogEnabled;
+    }
+
+    /**
+     * Писать ли в журнал личные сообщения (/msg)
+     */
+    public boolean isChatLogPrivateMessages() {
+        return chatLogPrivateMessages;
+    }
+
+    /**
+     * Размер сегмента журнала, после которого начинается новый
+     */
+    public long getChatLogSegmentBytes() {
+        return chatLogSegmentBytes;
+    }
+
+    /**
+     * Сколько сегментов хранить, более старые удаляются
+     */
+    public int getChatLogMaxSegments() {
+        return chatLogMaxSegments;
+    }
+
+    public int getChatLogQueueSize() {
+        return chatLogQueueSize;
+    }
+
+    public boolean isNetworkEnabled() {
+        return networkEnabled;
+    }
+
+    public String getNetworkServerName() {
+        return networkServerName;
+    }
+
+    /**
+     * plugin-message, tcp или loopback
+     */
+    public String getNetworkTransport() {
+        return networkTransport;
+    }
+
+    public String getNetworkTcpBind() {
+        return networkTcpBind;
+    }
+
+    public List<String> getNetworkTcpPeers() {
+        return networkTcpPeers;
+    }
+
+    public String getNetworkTcpSecret() {
+        return networkTcpSecret;
+    }
+
+    public int getNetworkDedupSize() {
+        return networkDedupSize;
+    }
+
+    public boolean isRateLimitEnabled() {
+        return rateLimitEnabled;
+    }
+
+    /**
+     * Группы лимитов в порядке конфига, последняя — default
+     */
+    public List<ChatRateLimiter.Group> getRateLimitGroups() {
+        return rateLimitGroups;
+    }
+
+    /**
+     * Сколько последних сообщений проверяется на повтор; 0 — проверка выключена
+     */
+    public int getDuplicateHistory() {
+        return duplicateHistory;
+    }
+
+    public long getDuplicateWindowNanos() {
+        return duplicateWindowNanos;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Дополнительные языки названий предметов, загружаются при первом игроке с таким языком
+     */
+    public List<String> getLanguages() {
+        return languages;
+    }
+
+    public int getLocalChatRadius() {
+        return localChatRadius;
+    }
+
+    public int getInvExpiredMinutes() {
+        return invExpiredMinutes;
+    }
+
+    public int getInvMaxSnapshots() {
+        return invMaxSnapshots;
+    }
+
+    public boolean isPlayerHoverEnabled() {
+        return playerHoverEnabled;
+    }
+
+    public boolean isPlayerMentionEnabled() {
+        return playerMentionEnabled;
+    }
+
+    public String getMessageFormat() {
+        return messageFormat;
+    }
+
+    public String getLocalFormat() {
+        return localFormat;
+    }
+
+    public String getGlobalFormat() {
+        return globalFormat;
+    }
+
+    public String getRenderExecutor() {
+        return renderExecutor;
+    }
+
+    public int getRenderThreads() {
+        return renderThreads;
+    }
+
+    public int getRenderQueueSize() {
+        return renderQueueSize;
+    }
+
+    public double getRenderDegradeThreshold() {
+        return renderDegradeThreshold;
+    }
+
+    public boolean isPlaceholderCacheEnabled() {
+        return placeholderCacheEnabled;
+    }
+
+    public int getPlaceholderCacheMaxSize() {
+        return placeholderCacheMaxSize;
+    }
+
+    public int getMetaCacheMaxSize() {
+        return metaCacheMaxSize;
+    }
+
+    public long getMetaCacheIdleMillis() {
+        return metaCacheIdleMillis;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * Файл для выгрузки метрик относительно папки плагина; пустая строка — не выгружать
+     */
+    public String getMetricsPrometheusFile() {
+        return metricsPrometheusFile;
+    }
+
+    public int getMetricsExportInterval() {
+        return metricsExportInterval;
+    }
+
+    /**
+     * Время жизни значения плейсхолдера по его идентификатору (часть до первого "_")
+     */
+    public long getPlaceholderTtl(String identifier) {
+        Long ttl = placeholderTtls.get(identifier);
+        return ttl != null ? ttl : placeholderDefaultTtl;
+    }
+
+    /**
+     * true, если плейсхолдер (целиком или по идентификатору) нельзя кэшировать
+     */
+    public boolean isPlaceholderNoCache(String token, String identifier) {
+        return placeholderNoCache.contains(token) || placeholderNoCache.contains(identifier);
+    }
+
+    public MessageTemplate getChatTemplate(boolean isGlobal) {
+        return isGlobal ? globalTemplate : localTemplate;
+    }
+
+    /**
+     * Формат чата, разделённый по {message}: {шапка, хвост}.
+     * null, если {message} встречается в формате не ровно один раз или формат оставляет до {message}
+     * открытым градиент, радугу или переход: тогда строка разбирается целиком.
+     */
+    public MessageTemplate[] getChatTemplateParts(boolean isGlobal) {
+        return isGlobal ? globalParts : localParts;
+    }
+
+    public String getMessage(String key) {
+        String message = messages.get(key);
+        return message != null ? message : "<red>message." + key + " not-found";
+    }
+
+    /**
+     * Префикс для слушателей локального чата вне радиуса, разобранный один раз при загрузке
+     */
+    public Component getBypassPrefix() {
+        return bypassPrefix;
+    }
+
+    /**
+     * Текст hover для ников игроков, разобранный при загрузке
+     */
+    public ConfigManager.PlaceholderText getPlayerHoverText() {
+        return playerHoverText;
+    }
+
+    public Map<String, ConfigManager.PlaceholderConfig> getPlaceholderConfigs() {
+        return placeholderConfigs;
+    }
+
+    public ConfigManager.PlaceholderConfig getCommandConfig() {
+        return commandConfig;
+    }
+}
@@ -0,0 +1,220 @@
+package com.flyaway.chatmanager.managers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.inventory.meta.SkullMeta;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Неизменяемый снимок предметов игрока для [inv]/[ender]/[item].
+ * В момент сообщения копируются только непустые слоты (уже в раскладке GUI),
+ * сам Inventory с головой, опытом и стеклом собирается лишь при первом открытии
+ * и дальше показывается всем зрителям.
+ */
+public final class InventorySnapshot implements InventoryHolder {
+
+    private static final int[] EMPTY_SLOTS = new int[0];
+    private static final ItemStack[] EMPTY_ITEMS = new ItemStack[0];
+
+    private final UUID ownerId;
+    private final String ownerName;
+    private final PlaceholderProcessor.ClickType type;
+    private final String title;
+    private final int level;
+    private final int[] slots;
+    private final ItemStack[] items;
+    private final long createdAt;
+
+    // Собранный GUI; создаётся и читается только в основном потоке
+    private Inventory view;
+
+    private InventorySnapshot(Player owner, PlaceholderProcessor.ClickType type, String title,
+                              int[] slots, ItemStack[] items) {
+        this.ownerId = owner.getUniqueId();
+        this.ownerName = owner.getName();
+        this.type = type;
+        this.title = title;
+        this.level = owner.getLevel();
+        this.slots = slots;
+        this.items = items;
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Снимает предметы игрока в раскладке нужного GUI
+     */
+    public static InventorySnapshot capture(Player player, PlaceholderProcessor.ClickType type, String title) {
+        Collector collector = new Collector(switch (type) {
+            case SHOW_ENDER -> 27;
+            case SHOW_INV -> 41;
+            default -> 1;
+        });
+        PlayerInventory inventory = player.getInventory();
+
+        switch (type) {
+            case SHOW_ITEM -> collector.add(4, inventory.getItemInMainHand());
+            case SHOW_ENDER -> {
+                ItemStack[] contents = player.getEnderChest().getContents();
+                for (int i = 0; i < contents.length; i++) {
+                    collector.add(i, contents[i]);
+                }
+            }
+            case SHOW_INV -> {
+                // 3–6: броня (boots, leggings, chest, helmet → шлем слева)
+                ItemStack[] armor = player.getEquipment().getArmorContents();
+                if (armor.length == 4) {
+                    for (int i = 0; i < 4; i++) {
+                        collector.add(3 + i, armor[3 - i]);
+                    }
+                }
+
+                // slot 8 — офф-рука
+                collector.add(8, inventory.getItemInOffHand());
+
+                // Ряды 3-5: основной инвентарь, ряд 6: хотбар
+                for (int i = 9; i < 36; i++) {
+                    collector.add(i + 9, inventory.getItem(i));
+                }
+                for (int i = 0; i < 9; i++) {
+                    collector.add(45 + i, inventory.getItem(i));
+                }
+            }
+            default -> {
+            }
+        }
+
+        return new InventorySnapshot(player, type, title, collector.slots(), collector.items());
+    }
+
+    /**
+     * GUI снимка. Вызывается в основном потоке; первый вызов собирает инвентарь, остальные переиспользуют его.
+     */
+    public Inventory getView(MessageManager messageManager) {
+        if (view == null) {
+            view = createView(messageManager);
+        }
+        return view;
+    }
+
+    private Inventory createView(MessageManager messageManager) {
+        int size = switch (type) {
+            case SHOW_ENDER -> 9 * 3;
+            case SHOW_INV -> 9 * 6;
+            default -> 9;
+        };
+
+        // Преобразуем название в Component через MessageManager
+        String titleText = (title == null || title.isEmpty()) ? "Инвентарь " + ownerName : title;
+        Inventory inv = Bukkit.createInventory(this, size, messageManager.formatMessage(titleText));
+
+        for (int i = 0; i < slots.length; i++) {
+            inv.setItem(slots[i], items[i]);
+        }
+
+        switch (type) {
+            case SHOW_ITEM -> {
+                // Слот 4 с предметом остаётся пустым, если в руке ничего нет
+                ItemStack filler = new ItemStack(Material.GRAY_STAINED_GLASS_PANE);
+                fillEmpty(inv, 0, 4, filler);
+                fillEmpty(inv, 5, 9, filler);
+            }
+            case SHOW_INV -> {
+                ItemStack filler = new ItemStack(Material.GRAY_STAINED_GLASS_PANE);
+                ItemMeta meta = filler.getItemMeta();
+                if (meta != null) meta.displayName(messageManager.formatMessage("<gray>"));
+                filler.setItemMeta(meta);
+
+                // slot 0 — голова игрока
+                ItemStack skull = new ItemStack(Material.PLAYER_HEAD);
+                SkullMeta skullMeta = (SkullMeta) skull.getItemMeta();
+                if (skullMeta != null) {
+                    skullMeta.setOwningPlayer(Bukkit.getOfflinePlayer(ownerId));
+                    skullMeta.displayName(messageManager.formatMessage("<yellow>" + ownerName));
+                    skull.setItemMeta(skullMeta);
+                }
+                inv.setItem(0, skull);
+
+                // slot 1 — уровень опыта
+                ItemStack exp = new ItemStack(Material.EXPERIENCE_BOTTLE);
+                ItemMeta expMeta = exp.getItemMeta();
+                if (expMeta != null) {
+                    expMeta.displayName(messageManager.formatMessage("<yellow>Уровень: " + level));
+                    exp.setItemMeta(expMeta);
+                }
+                inv.setItem(1, exp);
+
+                // Пустые ячейки первого ряда и весь второй ряд → стекло
+                fillEmpty(inv, 0, 18, filler);
+            }
+            default -> {
+            }
+        }
+
+        return inv;
+    }
+
+    private static void fillEmpty(Inventory inv, int from, int to, ItemStack filler) {
+        for (int slot = from; slot < to; slot++) {
+            ItemStack item = inv.getItem(slot);
+            if (item == null || item.getType().isAir()) {
+                inv.setItem(slot, filler);
+            }
+        }
+    }
+
+    public UUID getOwnerId() {
+        return ownerId;
+    }
+
+    public PlaceholderProcessor.ClickType getType() {
+        return type;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return view;
+    }
+
+    // Собирает только непустые слоты, копируя предметы
+    private static final class Collector {
+        private int[] slots;
+        private ItemStack[] items;
+        private int count;
+
+        Collector(int capacity) {
+            this.slots = new int[capacity];
+            this.items = new ItemStack[capacity];
+        }
+
+        void add(int slot, ItemStack item) {
+            if (item == null || item.getType().isAir()) return;
+            if (count == slots.length) {
+                slots = Arrays.copyOf(slots, count * 2 + 1);
+                items = Arrays.copyOf(items, count * 2 + 1);
+            }
+            slots[count] = slot;
+            items[count] = item.clone();
+            count++;
+        }
+
+        int[] slots() {
+            return count == 0 ? EMPTY_SLOTS : Arrays.copyOf(slots, count);
+        }
+
+        ItemStack[] items() {
+            return count == 0 ? EMPTY_ITEMS : Arrays.copyOf(items, count);
+        }
+    }
+}
@@ -7,77 +7,218 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Названия предметов по языкам.
+ * Каждый язык загружается в фоне при первом обращении (файл в папке плагина, файл в jar, затем скачивание)
+ * и собирается в массив готовых компонентов по Material.ordinal(), общий для всех игроков с этим языком.
+ * Цепочка замены: язык игрока → язык из списка languages с тем же кодом → language → имя Material.
+ */
 public class LanguageManager {
     private final ChatManagerPlugin plugin;
     private static final MiniMessage miniMessage = MiniMessage.miniMessage();
+    private static final Duration DOWNLOAD_TIMEOUT = Duration.ofSeconds(15);
 
     private final Gson gson = new GsonBuilder().create();
-    private final YamlConfiguration translations = new YamlConfiguration();
+    // Имена Material — последнее звено цепочки, пока ни один язык не загружен
+    private static final Component[] MATERIAL_NAMES = buildTable(Map.of());
+
+    // Номер последней перезагрузки: результат более старой не попадёт в таблицы
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<String, Component[]> tables = new ConcurrentHashMap<>();
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+    private volatile String defaultLanguage = "";
+    private volatile Set<String> languages = Set.of();
 
     public LanguageManager(ChatManagerPlugin plugin) {
         this.plugin = plugin;
         load();
     }
 
+    /**
+     * Сбрасывает загруженные языки и запускает фоновую загрузку языка по умолчанию.
+     * Остальные языки из списка languages загрузятся при первом обращении.
+     */
     public void load() {
-        String lang = plugin.getConfigManager().getLanguage().toLowerCase();
+        ConfigSnapshot config = plugin.getConfigManager().getSnapshot();
+        generation.incrementAndGet();
+        tables.clear();
+        requested.clear();
+
+        Set<String> allowed = new HashSet<>();
+        for (String lang : config.getLanguages()) {
+            allowed.add(lang.toLowerCase(Locale.ROOT));
+        }
+        languages = Set.copyOf(allowed);
+        defaultLanguage = config.getLanguage().toLowerCase(Locale.ROOT);
+        request(defaultLanguage);
+    }
 
-        File file = new File(plugin.getDataFolder(), "translations/" + lang + ".yml");
-        file.getParentFile().mkdirs();
+    /**
+     * Название на языке сервера
+     */
+    public Component translate(Material mat) {
+        return lookup(tableFor(defaultLanguage), mat);
+    }
 
-        if (file.exists()) {
-            try {
-                translations.load(file);
-                if (!translations.getKeys(false).isEmpty()) return;
-            } catch (Exception ignored) {
+    /**
+     * Название на языке игрока, если он есть в списке languages
+     */
+    public Component translate(Material mat, Locale locale) {
+        return lookup(tableFor(resolve(locale)), mat);
+    }
+
+    private static Component lookup(Component[] table, Material mat) {
+        int index = mat.ordinal();
+        return index < table.length ? table[index] : defaultName(mat);
+    }
+
+    // Точный язык, затем любой разрешённый с тем же кодом языка (en_gb → en_us), затем язык сервера
+    private String resolve(Locale locale) {
+        if (locale == null) return defaultLanguage;
+
+        String tag = locale.toString().toLowerCase(Locale.ROOT);
+        Set<String> allowed = languages;
+        if (tag.equals(defaultLanguage) || allowed.contains(tag)) return tag;
+
+        String prefix = locale.getLanguage().toLowerCase(Locale.ROOT) + "_";
+        if (defaultLanguage.startsWith(prefix)) return defaultLanguage;
+        for (String lang : allowed) {
+            if (lang.startsWith(prefix)) return lang;
+        }
+        return defaultLanguage;
+    }
+
+    private Component[] tableFor(String lang) {
+        Component[] table = tables.get(lang);
+        if (table != null) return table;
+
+        // Пока язык грузится — язык сервера, а если и он не готов — имена Material
+        request(lang);
+        table = tables.get(defaultLanguage);
+        return table != null ? table : MATERIAL_NAMES;
+    }
+
+    private void request(String lang) {
+        if (lang.isEmpty() || !requested.add(lang)) return;
+
+        long id = generation.get();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            Component[] table = buildTable(readTranslations(lang));
+            if (generation.get() == id) {
+                tables.put(lang, table);
             }
+        });
+    }
+
+    private static Component[] buildTable(Map<String, String> translations) {
+        Material[] materials = Material.values();
+        Component[] table = new Component[materials.length];
+        for (Material mat : materials) {
+            String translated = translations.get(mat.name().toLowerCase(Locale.ROOT));
+            table[mat.ordinal()] = translated != null ? miniMessage.deserialize(translated) : defaultName(mat);
         }
+        return table;
+    }
+
+    private static Component defaultName(Material mat) {
+        return Component.text(mat.name().toLowerCase(Locale.ROOT).replace('_', ' '));
+    }
+
+    /**
+     * Названия материалов: ключ — имя Material в нижнем регистре
+     */
+    private Map<String, String> readTranslations(String lang) {
+        File file = new File(plugin.getDataFolder(), "translations/" + lang + ".yml");
+        if (file.exists()) {
+            Map<String, String> local = materialSection(YamlConfiguration.loadConfiguration(file));
+            if (!local.isEmpty()) return local;
+        }
+
+        Map<String, String> bundled = readBundled(lang);
+        if (!bundled.isEmpty()) return bundled;
+
+        return download(lang, file);
+    }
+
+    private Map<String, String> readBundled(String lang) {
+        InputStream stream = plugin.getResource("translations/" + lang + ".yml");
+        if (stream == null) return Map.of();
 
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            return materialSection(YamlConfiguration.loadConfiguration(reader));
+        } catch (Exception e) {
+            plugin.getLogger().warning("Ошибка чтения встроенного языка " + lang + ": " + e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static Map<String, String> materialSection(YamlConfiguration yaml) {
+        ConfigurationSection section = yaml.getConfigurationSection("material");
+        if (section == null) return Map.of();
+
+        Map<String, String> result = new HashMap<>();
+        for (String key : section.getKeys(false)) {
+            String value = section.getString(key);
+            if (value != null) result.put(key, value);
+        }
+        return result;
+    }
+
+    private Map<String, String> download(String lang, File file) {
         plugin.getLogger().info("Загрузка языка " + lang + "...");
 
         String version = plugin.getServer().getMinecraftVersion();
         String url = "https://api.github.com/repos/InventivetalentDev/minecraft-assets"
                 + "/contents/assets/minecraft/lang/" + lang + ".json?ref=" + version;
 
+        Map<String, String> result = new HashMap<>();
         try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).build();
+            HttpClient client = HttpClient.newBuilder().connectTimeout(DOWNLOAD_TIMEOUT).build();
+            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).timeout(DOWNLOAD_TIMEOUT).build();
             HttpResponse<String> resp = client.send(request, HttpResponse.BodyHandlers.ofString());
 
             JsonObject root = gson.fromJson(resp.body(), JsonObject.class);
             String base64Content = root.get("content").getAsString();
 
             JsonObject json = gson.fromJson(
-                    new String(Base64Coder.decodeLines(base64Content)),
+                    new String(Base64Coder.decodeLines(base64Content), StandardCharsets.UTF_8),
                     JsonObject.class
             );
 
             for (Map.Entry<String, JsonElement> e : json.entrySet()) {
-
-                if (e.getKey().startsWith("item.minecraft.")) {
-                    String name = e.getKey().replace("item.minecraft.", "");
-                    if (name.contains(".")) continue;
-                    translations.set("material." + name, e.getValue().getAsString());
-                }
-
-                if (e.getKey().startsWith("block.minecraft.")) {
-                    String name = e.getKey().replace("block.minecraft.", "");
-                    if (name.contains(".")) continue;
-                    translations.set("material." + name, e.getValue().getAsString());
+                String name = materialKey(e.getKey());
+                if (name != null) {
+                    result.put(name, e.getValue().getAsString());
                 }
             }
 
+            YamlConfiguration translations = new YamlConfiguration();
+            result.forEach((key, value) -> translations.set("material." + key, value));
+            file.getParentFile().mkdirs();
             translations.save(file);
             plugin.getLogger().info("Язык успешно загружен.");
 
@@ -85,11 +226,19 @@ public class LanguageManager {
             plugin.getLogger().warning(ex.getMessage());
             plugin.getLogger().severe("Ошибка загрузки языка!");
         }
+        return result;
     }
 
-    public Component translate(Material mat) {
-        String key = mat.name().toLowerCase();
-        String def = key.replace("_", " ");
-        return miniMessage.deserialize(translations.getString("material." + key, def));
+    // item.minecraft.<name> и block.minecraft.<name> без вложенных ключей
+    private static String materialKey(String key) {
+        String name;
+        if (key.startsWith("item.minecraft.")) {
+            name = key.substring("item.minecraft.".length());
+        } else if (key.startsWith("block.minecraft.")) {
+            name = key.substring("block.minecraft.".length());
+        } else {
+            return null;
+        }
+        return name.contains(".") ? null : name;
     }
 }
@@ -0,0 +1,82 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.utils.SpatialGrid;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Индекс позиций игроков для локального чата.
+ * Позиции обновляются из событий движения/телепорта/смены мира на основном потоке,
+ * выборка получателей идёт из потока чата без обхода всех онлайн-игроков.
+ */
+public class LocalChatIndex {
+
+    public static final String BYPASS_PERMISSION = "chatmanager.local.listener";
+
+    // Ячейки по 32 блока: при радиусе 100 это 7x7 ячеек на выборку
+    private final SpatialGrid<Player> grid = new SpatialGrid<>(5);
+    private final Set<Player> bypassListeners = ConcurrentHashMap.newKeySet();
+
+    public void load() {
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            add(p);
+        }
+    }
+
+    public void add(Player player) {
+        update(player, player.getLocation());
+        refreshPermissions(player);
+    }
+
+    public void remove(Player player) {
+        grid.remove(player);
+        bypassListeners.remove(player);
+    }
+
+    public void update(Player player, Location location) {
+        if (location == null || location.getWorld() == null) return;
+        grid.update(player, location.getWorld(), location.getX(), location.getY(), location.getZ());
+    }
+
+    public void refreshPermissions(Player player) {
+        if (player.hasPermission(BYPASS_PERMISSION)) {
+            bypassListeners.add(player);
+        } else {
+            bypassListeners.remove(player);
+        }
+    }
+
+    /**
+     * Сверяет индекс с реальными позициями и правами. Страховка для перемещений,
+     * которые не порождают PlayerMoveEvent (например, езда в транспорте).
+     */
+    public void resync() {
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            add(p);
+        }
+    }
+
+    /**
+     * Обходит игроков в радиусе от отправителя, включая его самого.
+     */
+    public void forEachInRadius(Player sender, int radius, Consumer<Player> action) {
+        if (grid.forEachNear(sender, radius, action)) return;
+
+        // Отправитель ещё не попал в индекс — берём его текущую позицию
+        Location location = sender.getLocation();
+        grid.forEachWithin(location.getWorld(), location.getX(), location.getY(), location.getZ(), radius, action);
+    }
+
+    public Set<Player> getBypassListeners() {
+        return bypassListeners;
+    }
+
+    public int size() {
+        return grid.size();
+    }
+}
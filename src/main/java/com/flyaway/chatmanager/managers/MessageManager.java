@@ -7,14 +7,21 @@ import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.HashSet;
+import java.util.Set;
+
 public class MessageManager {
 
     private static final MiniMessage miniMessage = MiniMessage.miniMessage();
 
     private final ConfigManager configManager;
+    private final LocalChatIndex localChatIndex;
+    private final ChatMetrics chatMetrics;
 
     public MessageManager(ChatManagerPlugin plugin) {
         this.configManager = plugin.getConfigManager();
+        this.localChatIndex = plugin.getLocalChatIndex();
+        this.chatMetrics = plugin.getChatMetrics();
     }
 
     private String msg(String key) {
@@ -48,23 +55,50 @@ public class MessageManager {
     }
 
     public void sendMessageToPlayersInRadius(Player sender, Component component, int radius) {
-        for (Player player : Bukkit.getOnlinePlayers()) {
-
-            boolean sameWorld = player.getWorld().equals(sender.getWorld());
-            boolean inRange = sameWorld && player.getLocation().distance(sender.getLocation()) <= radius;
-            boolean hasBypass = player.hasPermission("chatmanager.local.listener");
+        sendMessageToPlayersInRadius(sender, new RenderedMessage(component), radius);
+    }
 
-            Component messageToSend = component;
+    // --- Методы с уже отрисованным сообщением: тело общее, префиксы получателей готовые ---
+    /**
+     * @return Количество получателей-игроков
+     */
+    public int broadcastMessage(RenderedMessage message) {
+        long start = chatMetrics.start();
+        broadcastMessage(message.body());
+        chatMetrics.record(ChatMetrics.Stage.DELIVERY, start);
+        return Bukkit.getOnlinePlayers().size();
+    }
 
-            if (!inRange && hasBypass) {
-                Component prefix = formatMessage(msg("bypass-prefix"));
-                messageToSend = prefix.append(component);
-            }
+    /**
+     * @return Количество получателей, включая слушателей вне радиуса
+     */
+    public int sendMessageToPlayersInRadius(Player sender, RenderedMessage message, int radius) {
+        long start = chatMetrics.start();
+        int recipients = deliverInRadius(sender, message, radius);
+        chatMetrics.record(ChatMetrics.Stage.DELIVERY, start);
+        return recipients;
+    }
 
-            if (inRange || hasBypass) {
-                player.sendMessage(messageToSend);
-            }
+    private int deliverInRadius(Player sender, RenderedMessage message, int radius) {
+        Component body = message.body();
+        Set<Player> inRange = new HashSet<>();
+        localChatIndex.forEachInRadius(sender, radius, player -> {
+            inRange.add(player);
+            player.sendMessage(body);
+        });
+
+        // Слушатели локального чата вне радиуса получают сообщение с префиксом
+        Set<Player> bypassListeners = localChatIndex.getBypassListeners();
+        if (bypassListeners.isEmpty()) return inRange.size();
+
+        int recipients = inRange.size();
+        Component bypassPrefix = configManager.getSnapshot().getBypassPrefix();
+        for (Player player : bypassListeners) {
+            if (inRange.contains(player)) continue;
+            player.sendMessage(message.withPrefix(RenderedMessage.Decoration.BYPASS, bypassPrefix));
+            recipients++;
         }
+        return recipients;
     }
 
     // --- Служебные методы ---
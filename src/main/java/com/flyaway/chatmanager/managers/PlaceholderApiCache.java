@@ -0,0 +1,207 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.ChatManagerPlugin;
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш значений PlaceholderAPI по ключу (игрок, плейсхолдер).
+ * Каждый %плейсхолдер% раскрывается отдельно и живёт в кэше своё время (TTL по идентификатору),
+ * плейсхолдеры из списка no-cache всегда запрашиваются заново.
+ */
+public class PlaceholderApiCache {
+
+    private final ConfigManager configManager;
+    private final boolean hasPapi;
+    private final Resolver resolver;
+    private final ChatMetrics chatMetrics;
+    private final Map<UUID, Map<String, CachedValue>> cache = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PlaceholderApiCache(ChatManagerPlugin plugin) {
+        this(plugin, plugin.getServer().getPluginManager().getPlugin("PlaceholderAPI") != null
+                ? PlaceholderAPI::setPlaceholders
+                : null);
+    }
+
+    /**
+     * @param resolver Источник значений плейсхолдеров; null — PlaceholderAPI не установлен
+     */
+    PlaceholderApiCache(ChatManagerPlugin plugin, Resolver resolver) {
+        this.configManager = plugin.getConfigManager();
+        this.chatMetrics = plugin.getChatMetrics();
+        this.hasPapi = resolver != null;
+        this.resolver = resolver;
+    }
+
+    public boolean isEnabled() {
+        return hasPapi;
+    }
+
+    /**
+     * Аналог PlaceholderAPI.setPlaceholders с кэшированием значений для игроков
+     */
+    public String setPlaceholders(CommandSender sender, String text) {
+        if (!hasPapi || text == null || text.indexOf('%') < 0) return text;
+
+        long start = chatMetrics.start();
+        String result = expand(sender, text);
+        chatMetrics.record(ChatMetrics.Stage.PAPI, start);
+        return result;
+    }
+
+    private String expand(CommandSender sender, String text) {
+        ConfigSnapshot config = configManager.getSnapshot();
+        if (!(sender instanceof Player player)) {
+            return resolver.setPlaceholders(null, text);
+        }
+        if (!config.isPlaceholderCacheEnabled()) {
+            return resolver.setPlaceholders(player, text);
+        }
+
+        StringBuilder result = new StringBuilder(text.length() + 16);
+        long now = System.currentTimeMillis();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int close = c == '%' ? text.indexOf('%', i + 1) : -1;
+            if (close < 0) {
+                result.append(c);
+                i++;
+                continue;
+            }
+
+            String token = text.substring(i + 1, close);
+            String identifier = identifierOf(token);
+            if (identifier == null) {
+                // Не похоже на плейсхолдер — второй '%' может начинать настоящий
+                result.append(c);
+                i = close;
+                continue;
+            }
+
+            result.append(resolve(player, token, identifier, config, now));
+            i = close + 1;
+        }
+
+        return result.toString();
+    }
+
+    private String resolve(Player player, String token, String identifier, ConfigSnapshot config, long now) {
+        if (config.isPlaceholderNoCache(token, identifier)) {
+            return resolver.setPlaceholders(player, "%" + token + "%");
+        }
+
+        Map<String, CachedValue> values = cache.computeIfAbsent(player.getUniqueId(), id -> new ConcurrentHashMap<>());
+        CachedValue cached = values.get(token);
+        if (cached != null && cached.expiresAt() > now) {
+            hits.increment();
+            return cached.value();
+        }
+
+        misses.increment();
+        String value = resolver.setPlaceholders(player, "%" + token + "%");
+        if (values.put(token, new CachedValue(value, now + config.getPlaceholderTtl(identifier))) == null
+                && size.incrementAndGet() > config.getPlaceholderCacheMaxSize()) {
+            evict(config.getPlaceholderCacheMaxSize());
+        }
+        return value;
+    }
+
+    // Идентификатор — часть до первого '_'; null, если токен не может быть плейсхолдером
+    private static String identifierOf(String token) {
+        int underscore = token.indexOf('_');
+        if (underscore <= 0) return null;
+
+        for (int i = 0; i < underscore; i++) {
+            if (Character.isWhitespace(token.charAt(i))) return null;
+        }
+        return token.substring(0, underscore);
+    }
+
+    /**
+     * Удаляет просроченные значения, а если кэш всё ещё больше лимита — значения целых игроков
+     */
+    private synchronized void evict(int maxSize) {
+        purgeExpired();
+
+        Iterator<Map.Entry<UUID, Map<String, CachedValue>>> players = cache.entrySet().iterator();
+        while (size.get() > maxSize && players.hasNext()) {
+            Map<String, CachedValue> values = players.next().getValue();
+            players.remove();
+            size.addAndGet(-values.size());
+            evictions.add(values.size());
+        }
+    }
+
+    public synchronized void purgeExpired() {
+        long now = System.currentTimeMillis();
+        int total = 0;
+
+        Iterator<Map<String, CachedValue>> players = cache.values().iterator();
+        while (players.hasNext()) {
+            Map<String, CachedValue> values = players.next();
+            values.values().removeIf(value -> {
+                if (value.expiresAt() > now) return false;
+                evictions.increment();
+                return true;
+            });
+
+            if (values.isEmpty()) {
+                players.remove();
+            } else {
+                total += values.size();
+            }
+        }
+
+        // Пересчёт заодно убирает расхождения счётчика из-за гонок с потоками чата
+        size.set(total);
+    }
+
+    public void invalidate(UUID playerId) {
+        Map<String, CachedValue> values = cache.remove(playerId);
+        if (values != null) {
+            size.addAndGet(-values.size());
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+        size.set(0);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @FunctionalInterface
+    interface Resolver {
+        String setPlaceholders(Player player, String text);
+    }
+
+    private record CachedValue(String value, long expiresAt) {
+    }
+}
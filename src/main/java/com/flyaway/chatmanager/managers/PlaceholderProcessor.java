@@ -1,35 +1,37 @@
 package com.flyaway.chatmanager.managers;
 
 import com.flyaway.chatmanager.ChatManagerPlugin;
-import me.clip.placeholderapi.PlaceholderAPI;
+import com.flyaway.chatmanager.utils.ComponentSplicer;
+import com.flyaway.chatmanager.utils.ExpiringMap;
+import com.flyaway.chatmanager.utils.NameMatcher;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.TextReplacementConfig;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
-import org.bukkit.Bukkit;
-import org.bukkit.Material;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.inventory.meta.SkullMeta;
 
 import java.util.*;
-import java.util.regex.Pattern;
 
 public class PlaceholderProcessor {
 
+    // Клик по снимку инвентаря; сам снимок есть только на сервере, где он сделан
+    private static final String OPEN_SNAPSHOT_COMMAND = "/chatmanager openinv ";
+
     private final ChatManagerPlugin plugin;
     private final ConfigManager configManager;
     private final MessageManager messageManager;
     private final PlayerTracker playerTracker;
     private final MentionManager mentionManager;
     private final LanguageManager languageManager;
-    private final boolean hasPapi;
-    private final Map<UUID, Map<ClickType, TimedInventory>> tempInventories = new HashMap<>();
+    private final PlaceholderApiCache placeholderApiCache;
+    private final ChatMetrics chatMetrics;
+    private final ChatRateLimiter chatRateLimiter;
+    private final ExpiringMap<SnapshotKey, InventorySnapshot> tempInventories = new ExpiringMap<>();
 
     public PlaceholderProcessor(ChatManagerPlugin plugin) {
         this.plugin = plugin;
@@ -38,146 +40,245 @@ public class PlaceholderProcessor {
         this.playerTracker = plugin.getPlayerTracker();
         this.mentionManager = plugin.getMentionManager();
         this.languageManager = plugin.getLanguageManager();
-        this.hasPapi = plugin.getServer().getPluginManager().getPlugin("PlaceholderAPI") != null;
+        this.placeholderApiCache = plugin.getPlaceholderApiCache();
+        this.chatMetrics = plugin.getChatMetrics();
+        this.chatRateLimiter = plugin.getChatRateLimiter();
     }
 
     /**
      * Обрабатывает все типы плейсхолдеров
      */
     public Component processAllPlaceholders(CommandSender sender, Component component) {
-        Map<String, ConfigManager.PlaceholderConfig> placeholders = configManager.getPlaceholderConfigs();
-        String plainText = PlainTextComponentSerializer.plainText().serialize(component);
-
-        component = processCommandPlaceholders(sender, component, plainText);
-        component = processPlayerMention(component, plainText);
-        component = processPlayerHover(component, plainText);
-
-        for (Map.Entry<String, ConfigManager.PlaceholderConfig> entry : placeholders.entrySet()) {
-            String placeholderKey = entry.getKey();
-            ConfigManager.PlaceholderConfig config = entry.getValue();
-
-            String placeholder = "[" + placeholderKey + "]";
-            if (plainText.contains(placeholder)) {
-                component = replaceCustomPlaceholder(component, placeholder, sender, config);
-            }
-        }
+        return processAllPlaceholders(sender, component, false);
+    }
 
-        return component;
+    /**
+     * Обрабатывает все типы плейсхолдеров
+     *
+     * @param degraded true — упрощённая отрисовка под нагрузкой: ники без hover
+     */
+    public Component processAllPlaceholders(CommandSender sender, Component component, boolean degraded) {
+        return processAllPlaceholders(sender, component, null, degraded);
     }
 
     /**
-     * Уведомляет игроков об упоминании в чате
+     * Обрабатывает все типы плейсхолдеров
+     *
+     * @param state    Состояние отправителя, снятое в основном потоке (captureSenderState), или null —
+     *                 тогда снимки и предмет в руке читаются у игрока прямо во время отрисовки
+     * @param degraded true — упрощённая отрисовка под нагрузкой: ники без hover
      */
-    private Component processPlayerMention(Component component, String plainText) {
-        if (!configManager.isPlayerMentionEnabled()) return component;
+    public Component processAllPlaceholders(CommandSender sender, Component component, SenderState state, boolean degraded) {
+        ConfigSnapshot snapshot = configManager.getSnapshot();
 
-        for (String name : playerTracker.getPlayerNames()) {
-            String mentionName = "@" + name;
-            if (!plainText.contains(mentionName)) continue;
-            Player player = Bukkit.getPlayerExact(name);
-            if (player == null) continue;
+        long start = chatMetrics.start();
+        PlaceholderSpans spans = new PlaceholderSpans(sender, state, snapshot, !degraded && snapshot.isPlayerHoverEnabled());
+        component = ComponentSplicer.splice(component, spans);
+        chatMetrics.record(ChatMetrics.Stage.PLACEHOLDERS, start);
 
+        start = chatMetrics.start();
+        for (Player player : spans.mentioned) {
             mentionManager.sendMentionMessage(player);
-
-            component = component.replaceText(b -> b
-                    .matchLiteral(mentionName)
-                    .replacement(messageManager.formatMessage("<aqua>" + mentionName + "</aqua>"))
-            );
         }
+        chatMetrics.record(ChatMetrics.Stage.MENTIONS, start);
 
         return component;
     }
 
     /**
-     * Добавляет hover никам игроков
+     * Вызывается в основном потоке до отрисовки вне его (/msg, /bc): снимает инвентари для [inv], [ender], [item]
+     * и копирует предмет в руке и локаль, чтобы поток отрисовки не читал живое состояние игрока.
+     * PlaceholderAPI так заранее не раскрыть, он раскрывается при отрисовке, как и в общем чате.
+     *
+     * @param text Текст сообщения после фильтра цветов
      */
-    private Component processPlayerHover(Component component, String plainText) {
-        if (!configManager.isPlayerHoverEnabled()) return component;
-        String hoverText = configManager.getMessage("player-hover-text");
-
-        for (String name : playerTracker.getPlayerNames()) {
-            if (!plainText.contains(name)) continue;
-            Player player = Bukkit.getPlayerExact(name);
-            if (player == null) continue;
-
-            Component hover = messageManager.formatMessage(processPlaceholderText(hoverText, player, ""));
-
-            component = component.replaceText(b -> b
-                    .matchLiteral(name)
-                    .replacement(Component.text(name).hoverEvent(HoverEvent.showText(hover))
-                    )
-            );
+    public SenderState captureSenderState(Player player, String text) {
+        ConfigSnapshot settings = configManager.getSnapshot();
+        Map<String, ConfigManager.PlaceholderConfig> placeholders = settings.getPlaceholderConfigs();
+        ConfigManager.PlaceholderConfig commandConfig = settings.getCommandConfig();
+        EnumSet<ClickType> captured = EnumSet.noneOf(ClickType.class);
+        boolean hasTokens = false;
+
+        int open = text.indexOf('[');
+        while (open >= 0) {
+            int close = text.indexOf(']', open + 1);
+            if (close < 0) break;
+
+            String token = text.substring(open + 1, close);
+            ConfigManager.PlaceholderConfig config = token.startsWith("/") ? commandConfig : placeholders.get(token);
+            if (config != null) {
+                hasTokens = true;
+                ClickType type = config.getClickType();
+                if (isInventoryType(type) && captured.add(type)) {
+                    takeSnapshot(player, type, text.substring(open, close + 1), config);
+                }
+            }
+            open = text.indexOf('[', open + 1);
         }
 
-        return component;
+        // Предмет нужен только для {item} в плейсхолдерах; без них копировать его незачем
+        ItemStack itemInHand = hasTokens ? player.getInventory().getItemInMainHand().clone() : null;
+        return new SenderState(itemInHand, player.locale());
     }
 
     /**
-     * Обрабатывает команды в формате [/command]
+     * Собирает замены всех видов для одного сообщения: [/command], [key], упоминания (@Nick) и hover ников.
+     * Дерево компонентов перестраивается один раз; при пересечении побеждает более ранний вид в этом списке.
+     * Компонент каждого плейсхолдера создаётся один раз на сообщение и только если он встретился.
      */
-    private Component processCommandPlaceholders(CommandSender sender, Component component, String plainText) {
-        ConfigManager.PlaceholderConfig config = configManager.getCommandConfig();
-        if (config == null) return component;
-
-        Pattern commandPattern = Pattern.compile("\\[(/[^]]+)]");
-        java.util.regex.Matcher matcher = commandPattern.matcher(plainText);
-
-        while (matcher.find()) {
-            String fullMatch = matcher.group(0);
-            String command = matcher.group(1);
-
-            // Создаем компонент для команды
-            Component commandComponent = createPlaceholderComponent(sender, command, config);
-
-            // Заменяем в исходном компоненте
-            component = component.replaceText(
-                    TextReplacementConfig.builder()
-                            .match(Pattern.quote(fullMatch))
-                            .replacement(commandComponent)
-                            .build()
-            );
+    private final class PlaceholderSpans implements ComponentSplicer.SpanFinder {
+
+        private static final int KIND_COMMAND = 0;
+        private static final int KIND_CUSTOM = 1;
+        private static final int KIND_NAME = 2;
+
+        private final CommandSender sender;
+        private final SenderState state;
+        private final ConfigManager.PlaceholderConfig commandConfig;
+        private final Map<String, ConfigManager.PlaceholderConfig> placeholders;
+        private final NameMatcher nameMatcher;
+        private final boolean mentionEnabled;
+        private final boolean hoverEnabled;
+        private final ConfigManager.PlaceholderText hoverText;
+        private final Map<String, Component> components = new HashMap<>();
+        private final Set<Player> mentioned = new LinkedHashSet<>();
+
+        PlaceholderSpans(CommandSender sender, SenderState state, ConfigSnapshot config, boolean hoverEnabled) {
+            this.sender = sender;
+            this.state = state;
+            this.commandConfig = config.getCommandConfig();
+            this.placeholders = config.getPlaceholderConfigs();
+            this.mentionEnabled = config.isPlayerMentionEnabled();
+            this.hoverEnabled = hoverEnabled;
+            this.nameMatcher = mentionEnabled || hoverEnabled ? playerTracker.getNameMatcher() : null;
+            this.hoverText = config.getPlayerHoverText();
         }
 
-        return component;
+        @Override
+        public void find(String text, ComponentSplicer.SpanSink sink) {
+            List<Match> matches = new ArrayList<>();
+
+            findBracketTokens(text, matches);
+
+            // Ники игроков: упоминание захватывает и '@' перед ником
+            if (nameMatcher != null && !nameMatcher.isEmpty()) {
+                nameMatcher.forEachMatch(text, (start, end, name) -> {
+                    boolean mention = mentionEnabled && start > 0 && text.charAt(start - 1) == '@';
+                    if (!mention && !hoverEnabled) return;
+                    matches.add(new Match(mention ? start - 1 : start, end, KIND_NAME, name));
+                });
+            }
+
+            if (matches.isEmpty()) return;
+            matches.sort(Comparator.comparingInt(Match::start).thenComparingInt(Match::kind));
+
+            int pos = 0;
+            for (int i = 0; i < matches.size(); i++) {
+                Match match = matches.get(i);
+                if (match.start() < pos) continue;
+
+                // Более поздняя замена более приоритетного вида перекрывает эту — уступаем ей
+                if (overlapsPreferred(matches, i)) continue;
+
+                Component replacement = replacement(match, text);
+                if (replacement == null) continue;
+
+                sink.accept(match.start(), match.end(), replacement);
+                pos = match.end();
+            }
+        }
+
+        /**
+         * Один проход по тексту: каждая пара [...] проверяется как [/command] или как ключ в таблице плейсхолдеров.
+         * Стоимость зависит от длины сообщения, а не от количества настроенных плейсхолдеров.
+         */
+        private void findBracketTokens(String text, List<Match> matches) {
+            int open = text.indexOf('[');
+            while (open >= 0) {
+                int close = text.indexOf(']', open + 1);
+                if (close < 0) return;
+
+                String token = text.substring(open + 1, close);
+                int kind = -1;
+                if (commandConfig != null && token.length() > 1 && token.charAt(0) == '/') {
+                    kind = KIND_COMMAND;
+                } else if (placeholders.containsKey(token)) {
+                    kind = KIND_CUSTOM;
+                }
+
+                if (kind >= 0) {
+                    matches.add(new Match(open, close + 1, kind, token));
+                    open = text.indexOf('[', close + 1);
+                } else {
+                    // Токен не распознан: следующая '[' может начинать свой внутри этой пары
+                    open = text.indexOf('[', open + 1);
+                }
+            }
+        }
+
+        private boolean overlapsPreferred(List<Match> matches, int index) {
+            Match match = matches.get(index);
+            for (int j = index + 1; j < matches.size(); j++) {
+                Match other = matches.get(j);
+                if (other.start() >= match.end()) return false;
+                if (other.kind() < match.kind()) return true;
+            }
+            return false;
+        }
+
+        private Component replacement(Match match, String text) {
+            return switch (match.kind()) {
+                case KIND_COMMAND -> components.computeIfAbsent("[" + match.key() + "]",
+                        token -> createPlaceholderComponent(sender, state, match.key(), commandConfig));
+                case KIND_CUSTOM -> components.computeIfAbsent("[" + match.key() + "]",
+                        token -> createPlaceholderComponent(sender, state, token, placeholders.get(match.key())));
+                default -> nameReplacement(match, text);
+            };
+        }
+
+        private Component nameReplacement(Match match, String text) {
+            Player player = playerTracker.getPlayer(match.key());
+            if (player == null) return null;
+
+            Component nameComponent = components.computeIfAbsent("@" + match.key(), token -> hoverEnabled
+                    ? Component.text(match.key()).hoverEvent(HoverEvent.showText(formatPlaceholderText(hoverText, player, null, "")))
+                    : Component.text(match.key()));
+
+            // Упоминание захватило '@' перед ником
+            if (match.end() - match.start() > match.key().length()) {
+                mentioned.add(player);
+                return Component.text("@", NamedTextColor.AQUA).append(nameComponent);
+            }
+            return nameComponent;
+        }
     }
 
-    /**
-     * Заменяет кастомный заполнитель на интерактивный компонент
-     */
-    private Component replaceCustomPlaceholder(Component component, String placeholder,
-                                               CommandSender sender, ConfigManager.PlaceholderConfig config) {
-        Component placeholderComponent = createPlaceholderComponent(sender, placeholder, config);
-
-        return component.replaceText(
-                TextReplacementConfig.builder()
-                        .match(Pattern.quote(placeholder))
-                        .replacement(placeholderComponent)
-                        .build()
-        );
+    private record Match(int start, int end, int kind, String key) {
     }
 
     /**
-     * Создает интерактивный компонент для плейсхолдера
+     * Создает интерактивный компонент для плейсхолдера.
+     * Статические части (текст, hover, click) разобраны при загрузке конфига,
+     * здесь заполняются только динамические: {command}, {player}, {item} и %papi%.
      */
-    private Component createPlaceholderComponent(CommandSender sender, String value, ConfigManager.PlaceholderConfig config) {
-        // Подготавливаем текст
-        String displayText = processPlaceholderText(config.getDisplayText(), sender, value);
-        String hoverText = processPlaceholderText(config.getHoverText(), sender, value);
-        String clickValue = processPlaceholderText(config.getClickValue(), sender, value);
-        String inventoryTitle = processPlaceholderText(config.getInventoryTitle(), sender, value);
-
+    private Component createPlaceholderComponent(CommandSender sender, SenderState state, String value, ConfigManager.PlaceholderConfig config) {
         // Создаем базовый компонент
-        Component component = messageManager.formatMessage(displayText);
+        Component component = formatPlaceholderText(config.getDisplayText(), sender, state, value);
 
         // Добавляем hover событие
-        if (!hoverText.isEmpty()) {
-            component = component.hoverEvent(
-                    HoverEvent.showText(messageManager.formatMessage(hoverText))
-            );
+        HoverEvent<Component> hoverEvent = config.getStaticHoverEvent();
+        if (hoverEvent == null && config.getHoverText().isDynamic()) {
+            String hoverText = processPlaceholderText(config.getHoverText(), sender, state, value);
+            if (!hoverText.isEmpty()) {
+                hoverEvent = HoverEvent.showText(messageManager.formatMessage(hoverText));
+            }
+        }
+        if (hoverEvent != null) {
+            component = component.hoverEvent(hoverEvent);
         }
 
         // Добавляем click событие
-        ClickEvent clickEvent = createClickEvent(config.getClickAction(), clickValue, sender, inventoryTitle);
+        ClickEvent clickEvent = createClickEvent(config, sender, state, value);
         if (clickEvent != null) {
             component = component.clickEvent(clickEvent);
         }
@@ -188,173 +289,115 @@ public class PlaceholderProcessor {
     /**
      * Создает click event
      */
-    private ClickEvent createClickEvent(String action, String value, CommandSender sender, String inventoryTitle) {
-        if (action == null || value == null) return null;
-
-        ClickType type;
-        try {
-            type = ClickType.valueOf(action.toUpperCase());
-        } catch (IllegalArgumentException ex) {
-            plugin.getLogger().warning("Неизвестный тип click-action: " + action);
-            return null;
-        }
-
-        // Создаём заранее GUI для инвентарей
-        if (sender instanceof Player player && (type == ClickType.SHOW_INV || type == ClickType.SHOW_ENDER || type == ClickType.SHOW_ITEM)) {
-            Inventory inv = createInventoryForPlayer(player, type, inventoryTitle);
-            TimedInventory timedInv = new TimedInventory(inv);
-            tempInventories.computeIfAbsent(player.getUniqueId(), k -> new HashMap<>()).put(type, timedInv);
-
-            // Кликабельный компонент просто вызовет команду открытия GUI
-            String cmd = "/chatmanager openinv " + player.getUniqueId() + " " + type.name().toLowerCase();
+    private ClickEvent createClickEvent(ConfigManager.PlaceholderConfig config, CommandSender sender, SenderState state, String value) {
+        ClickType type = config.getClickType();
+        if (type == null) return null;
+
+        if (sender instanceof Player player && isInventoryType(type)) {
+            // Со снятым заранее состоянием снимок уже сделан в основном потоке, здесь только ссылка на него
+            boolean available = state != null
+                    ? tempInventories.get(new SnapshotKey(player.getUniqueId(), type)) != null
+                    : takeSnapshot(player, type, value, config);
+            // Лимит снимков исчерпан и прежнего снимка нет — плейсхолдер без клика
+            if (!available) return null;
+
+            // Кликабельный компонент просто вызовет команду открытия GUI; при лимите откроется прежний снимок
+            String cmd = OPEN_SNAPSHOT_COMMAND + player.getUniqueId() + " " + type.name().toLowerCase();
             return ClickEvent.runCommand(cmd);
         }
 
-        return switch (type) {
-            case OPEN_URL -> ClickEvent.openUrl(value);
-            case RUN_COMMAND -> ClickEvent.runCommand(value);
-            case SUGGEST_COMMAND -> ClickEvent.suggestCommand(value);
-            case COPY_TO_CLIPBOARD -> ClickEvent.copyToClipboard(value);
-            default -> null;
-        };
+        // У inv, ender и item click-value не задан, поэтому проверяем его только после них
+        if (config.getClickValue().getRaw() == null) return null;
+        if (!config.getClickValue().isDynamic()) {
+            return config.getStaticClickEvent();
+        }
+        return ConfigManager.PlaceholderConfig.createClickEvent(type, processPlaceholderText(config.getClickValue(), sender, state, value, false));
     }
 
     /**
-     * Создает GUI для игрока с дополнительными рядами
+     * Копия сообщения для других серверов: у ссылок на снимки убираются клик и подсказка "нажмите",
+     * плейсхолдер остаётся обычным текстом, потому что снимка там нет
      */
-    private Inventory createInventoryForPlayer(Player player, ClickType type, String inventoryTitle) {
-        Inventory inv;
-        int size;
-        switch (type) {
-            case SHOW_ITEM -> size = 9;
-            case SHOW_ENDER -> size = 9 * 3;
-            case SHOW_INV -> size = 9 * 6;
-            default -> size = 9;
+    public static Component withoutSnapshotLinks(Component component) {
+        ClickEvent click = component.clickEvent();
+        if (click != null && click.value().startsWith(OPEN_SNAPSHOT_COMMAND)) {
+            component = component.clickEvent(null).hoverEvent(null);
         }
 
-        // Преобразуем название в Component через MessageManager
-        Component titleComponent = (inventoryTitle == null || inventoryTitle.isEmpty())
-                ? messageManager.formatMessage("Инвентарь " + player.getName())
-                : messageManager.formatMessage(inventoryTitle);
-
-        // Создаём инвентарь с Component заголовком (Paper 1.19+)
-        inv = Bukkit.createInventory(new ViewOnlyHolder(), size, titleComponent);
-
-        switch (type) {
-            case SHOW_ITEM -> {
-                var item = player.getInventory().getItemInMainHand();
-                if (!item.getType().isAir()) inv.setItem(4, item.clone());
-
-                ItemStack filler = new ItemStack(Material.GRAY_STAINED_GLASS_PANE);
-                int[] firstRow = {0, 1, 2, 3, 5, 6, 7, 8};
-                for (int slot : firstRow) {
-                    if (inv.getItem(slot) == null || Objects.requireNonNull(inv.getItem(slot)).getType().isAir()) {
-                        inv.setItem(slot, filler);
-                    }
-                }
+        List<Component> children = component.children();
+        List<Component> stripped = null;
+        for (int i = 0; i < children.size(); i++) {
+            Component child = children.get(i);
+            Component result = withoutSnapshotLinks(child);
+            if (result != child && stripped == null) {
+                stripped = new ArrayList<>(children);
             }
-            case SHOW_ENDER -> inv.setContents(player.getEnderChest().getContents());
-            case SHOW_INV -> {
-
-                // === Подготовка заливки стеклом ===
-                ItemStack filler = new ItemStack(Material.GRAY_STAINED_GLASS_PANE);
-                ItemMeta meta = filler.getItemMeta();
-                if (meta != null) meta.displayName(messageManager.formatMessage("<gray>"));
-                filler.setItemMeta(meta);
-
-                // === Ряд 1: голова + опыт + броня + офф-рука ===
-                // Слоты: [0]=голова игрока, [1]=уровень,
-                //         [3]=шлем, [4]=нагрудник, [5]=поножи, [6]=ботинки,
-                //         [8]=офф-рука, остальные заполняются стеклом
-                // slot 0 — голова игрока
-                ItemStack skull = new ItemStack(Material.PLAYER_HEAD);
-                SkullMeta skullMeta = (SkullMeta) skull.getItemMeta();
-                if (skullMeta != null) {
-                    skullMeta.setOwningPlayer(player);
-                    skullMeta.displayName(messageManager.formatMessage("<yellow>" + player.getName()));
-                    skull.setItemMeta(skullMeta);
-                }
-                inv.setItem(0, skull);
-
-                // slot 1 — уровень опыта (как EXPERIENCE_BOTTLE)
-                ItemStack exp = new ItemStack(Material.EXPERIENCE_BOTTLE);
-                ItemMeta expMeta = exp.getItemMeta();
-                if (expMeta != null) {
-                    expMeta.displayName(messageManager.formatMessage("<yellow>Уровень: " + player.getLevel()));
-                    exp.setItemMeta(expMeta);
-                }
-                inv.setItem(1, exp);
-
-                // 3–6: броня
-                ItemStack[] armor = player.getEquipment().getArmorContents(); // boots, leggings, chest, helmet
-                if (armor.length == 4) {
-                    inv.setItem(3, armor[3]); // helmet
-                    inv.setItem(4, armor[2]); // chestplate
-                    inv.setItem(5, armor[1]); // leggings
-                    inv.setItem(6, armor[0]); // boots
-                }
-
-                // slot 8 — офф-рука
-                ItemStack offhand = player.getInventory().getItemInOffHand();
-                if (!offhand.getType().isAir()) {
-                    inv.setItem(8, offhand.clone());
-                }
-
-                // Остальные ячейки первого ряда → стекло
-                int[] firstRow = {0, 1, 2, 3, 4, 5, 6, 7, 8};
-                for (int slot : firstRow) {
-                    if (inv.getItem(slot) == null || Objects.requireNonNull(inv.getItem(slot)).getType().isAir()) {
-                        inv.setItem(slot, filler);
-                    }
-                }
+            if (stripped != null) stripped.set(i, result);
+        }
+        return stripped == null ? component : component.children(stripped);
+    }
 
-                // === Ряд 2: стекло (как и раньше) ===
-                for (int i = 9; i < 18; i++) inv.setItem(i, filler);
+    private static boolean isInventoryType(ClickType type) {
+        return type == ClickType.SHOW_INV || type == ClickType.SHOW_ENDER || type == ClickType.SHOW_ITEM;
+    }
 
-                // === Ряды 3-6: основной инвентарь + хотбар ===
-                int targetSlot = 18;
+    /**
+     * Снимает предметы сейчас, а GUI соберётся только при открытии
+     *
+     * @return true, если снимок есть: новый или прежний, когда лимит снимков исчерпан
+     */
+    private boolean takeSnapshot(Player player, ClickType type, String value, ConfigManager.PlaceholderConfig config) {
+        SnapshotKey key = new SnapshotKey(player.getUniqueId(), type);
+        if (!chatRateLimiter.tryAcquire(player, ChatRateLimiter.Channel.SNAPSHOT)) {
+            return tempInventories.get(key) != null;
+        }
 
-                // Основной инвентарь
-                for (int i = 9; i < 36; i++) {
-                    ItemStack item = player.getInventory().getItem(i);
-                    if (item != null) inv.setItem(targetSlot, item.clone());
-                    targetSlot++;
-                }
+        String inventoryTitle = processPlaceholderText(config.getInventoryTitle(), player, null, value);
+        InventorySnapshot snapshot = InventorySnapshot.capture(player, type, inventoryTitle);
+        chatMetrics.recordSnapshot();
+        ConfigSnapshot settings = configManager.getSnapshot();
+        tempInventories.put(key, snapshot, settings.getInvExpiredMinutes() * 60_000L, settings.getInvMaxSnapshots());
+        return true;
+    }
 
-                // Хотбар
-                for (int i = 0; i < 9; i++) {
-                    ItemStack item = player.getInventory().getItem(i);
-                    if (item != null) inv.setItem(targetSlot, item.clone());
-                    targetSlot++;
-                }
-            }
-        }
+    /**
+     * Готовый компонент для статического текста или разбор заполненного динамического
+     */
+    private Component formatPlaceholderText(ConfigManager.PlaceholderText text, CommandSender sender, SenderState state, String value) {
+        Component component = text.getComponent();
+        return component != null ? component : messageManager.formatMessage(processPlaceholderText(text, sender, state, value));
+    }
 
-        return inv;
+    /**
+     * Обрабатывает текст с подстановкой плейсхолдеров для разбора MiniMessage
+     */
+    private String processPlaceholderText(ConfigManager.PlaceholderText text, CommandSender sender, SenderState state, String value) {
+        return processPlaceholderText(text, sender, state, value, true);
     }
 
     /**
      * Обрабатывает текст с подстановкой плейсхолдеров
+     *
+     * @param translatable true — текст станет компонентом, и название предмета переведёт клиент каждого получателя;
+     *                     false — обычная строка (click-value), название на языке отправителя
      */
-    private String processPlaceholderText(String text, CommandSender sender, String value) {
-        if (text == null) return "";
+    private String processPlaceholderText(ConfigManager.PlaceholderText text, CommandSender sender, SenderState state,
+                                          String value, boolean translatable) {
+        if (text.getRaw() == null) return "";
+        if (!text.isDynamic()) return text.getRaw();
 
-        String result = text
-                .replace("{command}", value)
-                .replace("{player}", sender.getName());
+        // {item} пока оставляем как есть: его значение не должно проходить через PlaceholderAPI
+        String result = text.getTemplate().fill(value, sender.getName(), "{item}");
 
         // PlaceholderAPI
-        if (hasPapi) {
-            if (sender instanceof Player player) {
-                result = PlaceholderAPI.setPlaceholders(player, result);
-            } else {
-                result = PlaceholderAPI.setPlaceholders(null, result);
-            }
-        }
+        result = placeholderApiCache.setPlaceholders(sender, result);
 
         // Предмет в руке — только если sender это игрок
-        if (sender instanceof Player player && result.contains("{item}")) {
-            result = result.replace("{item}", getItemInHandDisplay(player));
+        if (text.usesItem() && sender instanceof Player player && result.contains("{item}")) {
+            String item = state != null
+                    ? getItemDisplay(state.itemInHand(), state.locale(), translatable)
+                    : getItemDisplay(player.getInventory().getItemInMainHand(), player.locale(), translatable);
+            result = result.replace("{item}", item);
         }
 
         return result;
@@ -362,25 +405,33 @@ public class PlaceholderProcessor {
 
     /**
      * Получает отображаемое название предмета в руке
+     *
+     * @param locale Язык отправителя для запасного названия
      */
-    private String getItemInHandDisplay(Player player) {
-        var item = player.getInventory().getItemInMainHand();
-        if (item.getType().isAir()) {
+    private String getItemDisplay(ItemStack item, Locale locale, boolean translatable) {
+        if (item == null || item.getType().isAir()) {
             return "<gray>Пусто";
         }
 
         try {
-            // Получаем переведенное название
-            Component translatedName = getItemDisplayName(item, player.locale());
-
-            // Добавляем количество если больше 1
-            if (item.getAmount() > 1) {
-                translatedName = translatedName
-                        .append(Component.text(" × "))
-                        .append(Component.text(item.getAmount()));
+            // Количество если больше 1
+            String amount = item.getAmount() > 1 ? " × " + item.getAmount() : "";
+
+            ItemMeta meta = item.getItemMeta();
+            if (meta != null && meta.hasDisplayName()) {
+                // Используем кастомное имя предмета
+                return "<green>" + PlainTextComponentSerializer.plainText().serialize(meta.displayName()) + amount;
             }
 
-            return "<green>" + PlainTextComponentSerializer.plainText().serialize(translatedName);
+            // Переведённое имя на языке отправителя
+            String translated = PlainTextComponentSerializer.plainText().serialize(
+                    languageManager.translate(item.getType(), locale));
+            if (!translatable) {
+                return "<green>" + translated + amount;
+            }
+
+            // Клиент переводит ключ сам, название отправителя остаётся запасным
+            return "<green><lang_or:" + item.getType().translationKey() + ":'" + escapeArgument(translated) + "'>" + amount;
 
         } catch (Exception e) {
             plugin.getLogger().warning("Ошибка при получении названия предмета: " + e.getMessage());
@@ -389,23 +440,9 @@ public class PlaceholderProcessor {
         }
     }
 
-    private Component getItemDisplayName(ItemStack item, Locale locale) {
-        if (item == null || item.getType().isAir()) {
-            return Component.text("Пусто");
-        }
-
-        ItemMeta meta = item.getItemMeta();
-        Component displayName;
-
-        if (meta != null && meta.hasDisplayName()) {
-            // Используем кастомное имя предмета
-            displayName = meta.displayName();
-        } else {
-            // Используем переведённое имя предмета
-            displayName = languageManager.translate(item.getType());
-        }
-
-        return displayName;
+    // Аргумент тега MiniMessage в одинарных кавычках
+    private static String escapeArgument(String text) {
+        return text.replace("\\", "\\\\").replace("'", "\\'");
     }
 
     private String formatItemName(String materialName) {
@@ -424,31 +461,17 @@ public class PlaceholderProcessor {
      * @param type       Тип GUI (SHOW_INV, SHOW_ENDER, SHOW_ITEM)
      */
     public void openInventoryGUI(Player viewer, UUID targetUUID, ClickType type) {
-        Map<ClickType, TimedInventory> invMap = tempInventories.get(targetUUID);
-        if (invMap == null) {
+        InventorySnapshot snapshot = tempInventories.get(new SnapshotKey(targetUUID, type));
+        if (snapshot == null) {
             messageManager.sendMessage(viewer, "<red>Этот просмотр инвентаря истёк.");
             return;
         }
 
-        TimedInventory timedInv = invMap.get(type);
-        if (timedInv == null) {
-            messageManager.sendMessage(viewer, "<red>Этот просмотр инвентаря истёк.");
-            return;
-        }
-
-        viewer.openInventory(timedInv.getInventory());
+        viewer.openInventory(snapshot.getView(messageManager));
     }
 
-    private class ViewOnlyHolder implements InventoryHolder {
-        @Override
-        public Inventory getInventory() {
-            return null; // не используется
-        }
-    }
-
-
     public boolean isTempInventory(Inventory inv) {
-        return inv.getHolder() instanceof ViewOnlyHolder;
+        return inv.getHolder() instanceof InventorySnapshot;
     }
 
     public enum ClickType {
@@ -461,32 +484,25 @@ public class PlaceholderProcessor {
         SHOW_ITEM
     }
 
-    private static class TimedInventory {
-        private final Inventory inventory;
-        private final long timestamp;
-
-        public TimedInventory(Inventory inventory) {
-            this.inventory = inventory;
-            this.timestamp = System.currentTimeMillis();
-        }
-
-        public Inventory getInventory() {
-            return inventory;
-        }
-
-        public long getTimestamp() {
-            return timestamp;
-        }
+    public void cleanupExpiredInventories() {
+        tempInventories.expire();
     }
 
-    public void cleanupExpiredInventories() {
-        long now = System.currentTimeMillis();
-        long expiryMillis = configManager.getInvExpiredMinutes() * 60 * 1000;
+    /**
+     * Количество хранимых снимков инвентарей
+     */
+    public int getInventorySnapshotCount() {
+        return tempInventories.size();
+    }
 
-        tempInventories.forEach((uuid, invMap) -> {
-            invMap.entrySet().removeIf(entry -> now - entry.getValue().getTimestamp() > expiryMillis);
-        });
+    private record SnapshotKey(UUID owner, ClickType type) {
+    }
 
-        tempInventories.entrySet().removeIf(entry -> entry.getValue().isEmpty());
+    /**
+     * Состояние отправителя, снятое в основном потоке для отрисовки вне его
+     *
+     * @param itemInHand Копия предмета в основной руке или null, если в сообщении нет плейсхолдеров
+     */
+    public record SenderState(ItemStack itemInHand, Locale locale) {
     }
 }
@@ -0,0 +1,156 @@
+package com.flyaway.chatmanager.managers;
+
+import com.flyaway.chatmanager.ChatManagerPlugin;
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.cacheddata.CachedMetaData;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш префикса, суффикса и цвета ника из LuckPerms.
+ * Хранит уже готовые строки, ограничен по размеру и времени простоя,
+ * запись игрока удаляется при выходе и при пересчёте прав в LuckPerms.
+ */
+public class PlayerMetaCache {
+
+    private final ConfigManager configManager;
+    private final LuckPerms luckPerms;
+    private final Map<UUID, Entry> cache = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // Растёт при каждом сбросе записи: загрузка, во время которой был сброс, в кэше не остаётся
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PlayerMetaCache(ChatManagerPlugin plugin) {
+        this.configManager = plugin.getConfigManager();
+        this.luckPerms = plugin.getServer().getPluginManager().getPlugin("LuckPerms") != null
+                ? LuckPermsProvider.get()
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return luckPerms != null;
+    }
+
+    /**
+     * Мета-данные игрока; без LuckPerms — пустые строки
+     */
+    public PlayerMeta get(Player player) {
+        if (luckPerms == null) return PlayerMeta.EMPTY;
+
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(player.getUniqueId());
+        if (entry != null) {
+            hits.increment();
+            entry.lastAccess = now;
+            return entry.meta;
+        }
+
+        misses.increment();
+        long stamp = invalidations.get();
+        PlayerMeta meta = PlayerMeta.of(luckPerms.getPlayerAdapter(Player.class).getMetaData(player));
+        Entry loaded = new Entry(meta, now);
+        cache.put(player.getUniqueId(), loaded);
+        // Пересчёт пришёл, пока данные загружались: они могут быть старыми, следующее чтение загрузит заново
+        if (invalidations.get() != stamp) {
+            cache.remove(player.getUniqueId(), loaded);
+        }
+
+        int maxSize = configManager.getSnapshot().getMetaCacheMaxSize();
+        if (cache.size() > maxSize) {
+            evict(maxSize);
+        }
+        return meta;
+    }
+
+    /**
+     * Сбрасывает запись игрока (пересчёт прав в LuckPerms или выход): следующее чтение загрузит данные заново
+     */
+    public void invalidate(UUID playerId) {
+        invalidations.incrementAndGet();
+        cache.remove(playerId);
+    }
+
+    /**
+     * Удаляет записи, к которым давно не обращались
+     */
+    public void purgeExpired() {
+        long deadline = System.currentTimeMillis() - configManager.getSnapshot().getMetaCacheIdleMillis();
+        cache.values().removeIf(entry -> {
+            if (entry.lastAccess > deadline) return false;
+            evictions.increment();
+            return true;
+        });
+    }
+
+    // Сначала простаивающие записи, затем самые давно использованные
+    private synchronized void evict(int maxSize) {
+        purgeExpired();
+
+        while (cache.size() > maxSize) {
+            UUID oldest = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<UUID, Entry> e : cache.entrySet()) {
+                if (e.getValue().lastAccess < oldestAccess) {
+                    oldestAccess = e.getValue().lastAccess;
+                    oldest = e.getKey();
+                }
+            }
+            if (oldest == null || cache.remove(oldest) == null) break;
+            evictions.increment();
+        }
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Готовые строки для формата чата
+     */
+    public record PlayerMeta(String prefix, String suffix, String usernameColor) {
+        public static final PlayerMeta EMPTY = new PlayerMeta("", "", "");
+
+        static PlayerMeta of(CachedMetaData meta) {
+            return new PlayerMeta(
+                    Objects.requireNonNullElse(meta.getPrefix(), ""),
+                    Objects.requireNonNullElse(meta.getSuffix(), ""),
+                    Objects.requireNonNullElse(meta.getMetaValue("username-color"), "")
+            );
+        }
+    }
+
+    private static final class Entry {
+        private final PlayerMeta meta;
+        private volatile long lastAccess;
+
+        private Entry(PlayerMeta meta, long lastAccess) {
+            this.meta = meta;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.flyaway.chatmanager.managers;
 
+import com.flyaway.chatmanager.ChatManagerPlugin;
+import com.flyaway.chatmanager.utils.NameMatcher;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
@@ -8,30 +10,75 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 public class PlayerTracker {
 
+    private final ChatManagerPlugin plugin;
     private final Map<UUID, Player> players = new ConcurrentHashMap<>();
+    private final Map<String, Player> playersByName = new ConcurrentHashMap<>();
+
+    // Автомат по никам онлайн-игроков, пересобирается после входа/выхода и читается из async-потоков
+    private volatile NameMatcher nameMatcher = NameMatcher.empty();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    public PlayerTracker(ChatManagerPlugin plugin) {
+        this.plugin = plugin;
+    }
 
     public void load() {
         for (Player p : Bukkit.getOnlinePlayers()) {
-            add(p);
+            players.put(p.getUniqueId(), p);
+            playersByName.put(p.getName(), p);
         }
+        rebuildNameMatcher();
     }
 
     public void add(Player player) {
         players.put(player.getUniqueId(), player);
+        playersByName.put(player.getName(), player);
+        scheduleRebuild();
     }
 
     public void remove(Player player) {
         players.remove(player.getUniqueId());
+        playersByName.remove(player.getName(), player);
+        scheduleRebuild();
+    }
+
+    /**
+     * Пересборка откладывается на тик и идёт вне основного потока: при волне входов все изменения
+     * за тик попадают в одну сборку. До неё новый ник ещё не подсвечивается, а вышедший находится
+     * автоматом, но отбрасывается, потому что getPlayer вернёт null
+     */
+    private void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) return;
+
+        Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> {
+            // Флаг снимается до сборки: изменения во время неё запланируют следующую
+            rebuildScheduled.set(false);
+            rebuildNameMatcher();
+        }, 1L);
+    }
+
+    // Под блокировкой, чтобы сборка по более старому списку не перезаписала более новую
+    private synchronized void rebuildNameMatcher() {
+        nameMatcher = NameMatcher.of(playersByName.keySet());
     }
 
     public Collection<Player> getPlayers() {
         return players.values();
     }
 
+    public Player getPlayer(String name) {
+        return playersByName.get(name);
+    }
+
+    public NameMatcher getNameMatcher() {
+        return nameMatcher;
+    }
+
     public Set<String> getPlayerNames() {
         return players.values()
                 .stream()
@@ -0,0 +1,48 @@
+package com.flyaway.chatmanager.managers;
+
+import net.kyori.adventure.text.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Отрисованное сообщение: общее для всех тело и варианты для отдельных групп получателей.
+ * Тело рисуется один раз; вариант (тело + префикс получателя) собирается при первом запросе
+ * и дальше переиспользуется всеми получателями с тем же ключом.
+ */
+public final class RenderedMessage {
+
+    private final Component body;
+    private final Map<Object, Component> variants = new ConcurrentHashMap<>(4);
+
+    public RenderedMessage(Component body) {
+        this.body = body;
+    }
+
+    /**
+     * Тело сообщения, не зависящее от получателя
+     */
+    public Component body() {
+        return body;
+    }
+
+    /**
+     * Тело с префиксом получателя. Префикс — уже готовый компонент, тело повторно не рисуется.
+     */
+    public Component withPrefix(Decoration decoration, Component prefix) {
+        return variants.computeIfAbsent(decoration, d -> prefix.append(body));
+    }
+
+    /**
+     * Произвольный вариант для получателей с общим ключом (например, с одной локалью).
+     */
+    public Component variant(Object key, Supplier<Component> factory) {
+        return variants.computeIfAbsent(key, k -> factory.get());
+    }
+
+    public enum Decoration {
+        // Слушатель локального чата вне радиуса
+        BYPASS
+    }
+}
@@ -0,0 +1,125 @@
+package com.flyaway.chatmanager.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Двоичный формат кадров моста.
+ * Кадр: magic (int), версия (byte), количество сообщений (varint), затем сообщения подряд.
+ * Сообщение: id (long), тип (byte), origin, UUID (2 long), ник, получатель, JSON компонента;
+ * строки — длина в varint и байты UTF-8.
+ */
+public final class BridgeCodec {
+
+    private static final int MAGIC = 0x434D4252; // "CMBR"
+    private static final byte VERSION = 1;
+    // magic + версия + количество (до 5 байт)
+    public static final int FRAME_HEADER_SIZE = 4 + 1 + 5;
+
+    private BridgeCodec() {
+    }
+
+    /**
+     * Сообщение без заголовка кадра, чтобы можно было собрать кадр нужного размера
+     */
+    public static byte[] encodeMessage(BridgeMessage message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + message.component().length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(message.id());
+            out.writeByte(message.type().ordinal());
+            writeString(out, message.origin());
+            out.writeLong(message.sender().getMostSignificantBits());
+            out.writeLong(message.sender().getLeastSignificantBits());
+            writeString(out, message.senderName());
+            writeString(out, message.target());
+            writeString(out, message.component());
+        } catch (IOException e) {
+            // ByteArrayOutputStream не бросает IOException
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Собирает кадр из сообщений, закодированных {@link #encodeMessage}
+     */
+    public static byte[] encodeFrame(List<byte[]> messages) {
+        int size = FRAME_HEADER_SIZE;
+        for (byte[] message : messages) size += message.length;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            writeVarInt(out, messages.size());
+            for (byte[] message : messages) out.write(message);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<BridgeMessage> decodeFrame(byte[] frame) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        if (in.readInt() != MAGIC) throw new IOException("Неизвестный формат кадра");
+        int version = in.readByte();
+        if (version != VERSION) throw new IOException("Неподдерживаемая версия кадра: " + version);
+
+        int count = readVarInt(in);
+        BridgeMessage.Type[] types = BridgeMessage.Type.values();
+        List<BridgeMessage> messages = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            long id = in.readLong();
+            int type = in.readByte();
+            if (type < 0 || type >= types.length) throw new IOException("Неизвестный тип сообщения: " + type);
+
+            String origin = readString(in, frame.length);
+            UUID sender = new UUID(in.readLong(), in.readLong());
+            String senderName = readString(in, frame.length);
+            String target = readString(in, frame.length);
+            String component = readString(in, frame.length);
+            messages.add(new BridgeMessage(id, types[type], origin, sender, senderName, target, component));
+        }
+        return messages;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, int limit) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0 || length > limit) throw new IOException("Некорректная длина строки: " + length);
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Слишком длинный varint");
+    }
+}
@@ -0,0 +1,25 @@
+package com.flyaway.chatmanager.network;
+
+import java.util.UUID;
+
+/**
+ * Сообщение для других серверов: уже отрисованный компонент (JSON) и метаданные
+ *
+ * @param id         Случайный идентификатор для отсева повторов
+ * @param type       Глобальный чат, личное сообщение или список игроков сервера
+ * @param origin     Имя сервера-отправителя
+ * @param sender     UUID игрока-отправителя
+ * @param senderName Ник отправителя
+ * @param target     Ник получателя личного сообщения, для глобального — пустая строка
+ * @param component  Компонент в формате JSON; для списка игроков — ники через перевод строки
+ */
+public record BridgeMessage(long id, Type type, String origin, UUID sender, String senderName,
+                            String target, String component) {
+
+    public enum Type {
+        GLOBAL,
+        PRIVATE,
+        // Кто сейчас на сервере-отправителе: нужно, чтобы /msg на неизвестный ник сразу получил ошибку
+        PLAYERS
+    }
+}
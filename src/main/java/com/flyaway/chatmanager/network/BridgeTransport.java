@@ -0,0 +1,28 @@
+package com.flyaway.chatmanager.network;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Способ доставки кадров между серверами.
+ * Кадр — готовый массив байт от {@link BridgeCodec}, транспорт его не разбирает.
+ */
+public interface BridgeTransport {
+
+    /**
+     * @param receiver Получает кадры от других серверов; может вызываться из любого потока
+     */
+    void start(Consumer<byte[]> receiver) throws IOException;
+
+    /**
+     * Отправляет кадр остальным серверам. Вызывается из основного потока и не должен ждать сеть.
+     */
+    void send(byte[] frame);
+
+    /**
+     * Наибольший размер кадра в байтах
+     */
+    int getMaxFrameSize();
+
+    void close();
+}
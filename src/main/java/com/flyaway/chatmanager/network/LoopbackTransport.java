@@ -0,0 +1,53 @@
+package com.flyaway.chatmanager.network;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Транспорт внутри одной JVM: кадр сразу получают все остальные экземпляры с тем же именем канала.
+ * Нужен для локальной проверки моста без прокси и сети.
+ */
+public final class LoopbackTransport implements BridgeTransport {
+
+    private static final Map<String, Set<LoopbackTransport>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String channel;
+    private volatile Consumer<byte[]> receiver;
+
+    public LoopbackTransport(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        CHANNELS.computeIfAbsent(channel, name -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+
+    @Override
+    public void send(byte[] frame) {
+        Set<LoopbackTransport> members = CHANNELS.get(channel);
+        if (members == null) return;
+
+        for (LoopbackTransport member : members) {
+            Consumer<byte[]> target = member.receiver;
+            if (member != this && target != null) {
+                target.accept(frame.clone());
+            }
+        }
+    }
+
+    @Override
+    public int getMaxFrameSize() {
+        return 1 << 20;
+    }
+
+    @Override
+    public void close() {
+        Set<LoopbackTransport> members = CHANNELS.get(channel);
+        if (members != null) members.remove(this);
+        receiver = null;
+    }
+}
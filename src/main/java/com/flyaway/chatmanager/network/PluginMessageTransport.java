@@ -0,0 +1,88 @@
+package com.flyaway.chatmanager.network;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Транспорт через прокси: подканал Forward канала BungeeCord (его понимают BungeeCord и Velocity).
+ * Прокси пересылает кадр на все остальные серверы, где есть хотя бы один игрок;
+ * отправить кадр тоже можно только через игрока, поэтому на пустом сервере кадры отбрасываются.
+ */
+public final class PluginMessageTransport implements BridgeTransport, PluginMessageListener {
+
+    private static final String CHANNEL = "BungeeCord";
+    private static final String SUBCHANNEL = "ChatManager";
+    // Длина данных в Forward записывается в short
+    private static final int MAX_FRAME_SIZE = Short.MAX_VALUE;
+
+    private final Plugin plugin;
+    private volatile Consumer<byte[]> receiver;
+
+    public PluginMessageTransport(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        Bukkit.getServer().getMessenger().registerOutgoingPluginChannel(plugin, CHANNEL);
+        Bukkit.getServer().getMessenger().registerIncomingPluginChannel(plugin, CHANNEL, this);
+    }
+
+    @Override
+    public void send(byte[] frame) {
+        Iterator<? extends Player> players = Bukkit.getOnlinePlayers().iterator();
+        if (!players.hasNext()) return;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(frame.length + 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(SUBCHANNEL);
+            out.writeShort(frame.length);
+            out.write(frame);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        players.next().sendPluginMessage(plugin, CHANNEL, bytes.toByteArray());
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        Consumer<byte[]> target = receiver;
+        if (!CHANNEL.equals(channel) || target == null) return;
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+            if (!SUBCHANNEL.equals(in.readUTF())) return;
+
+            byte[] frame = new byte[in.readUnsignedShort()];
+            in.readFully(frame);
+            target.accept(frame);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Некорректное сообщение моста чата: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public int getMaxFrameSize() {
+        return MAX_FRAME_SIZE;
+    }
+
+    @Override
+    public void close() {
+        receiver = null;
+        Bukkit.getServer().getMessenger().unregisterIncomingPluginChannel(plugin);
+        Bukkit.getServer().getMessenger().unregisterOutgoingPluginChannel(plugin);
+    }
+}
@@ -0,0 +1,290 @@
+package com.flyaway.chatmanager.network;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Прямые TCP-соединения между серверами без брокера: каждый сервер слушает свой порт
+ * и подключается ко всем остальным из списка peers. Кадры дальше не пересылаются, поэтому нужна полная сетка.
+ * - кадр: длина (int), байты и HMAC-SHA256 от номера кадра и байтов под ключом сессии
+ * - рукопожатие взаимное: принимающая сторона шлёт свой случайный вызов, подключившаяся — свой вызов
+ *   и HMAC от обоих по общему секрету, принимающая проверяет его и отвечает своим HMAC; подключившаяся
+ *   проверяет ответ до первого кадра. Сам секрет по сети не передаётся, неверный ответ закрывает соединение
+ * - ключ сессии выводится из секрета и обоих вызовов, номер кадра не даёт повторить или переставить кадры
+ * - без секрета (или с секретом из примера конфига) транспорт не запускается
+ * - у каждого соседа своя ограниченная очередь и поток записи; при переполнении кадры отбрасываются
+ */
+public final class TcpTransport implements BridgeTransport {
+
+    private static final int MAX_FRAME_SIZE = 1 << 20;
+    private static final int QUEUE_SIZE = 1024;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+    // Сколько ждать ответа на вызов; молчащее неавторизованное соединение закрывается
+    private static final int HANDSHAKE_TIMEOUT_MS = 5000;
+    private static final int CHALLENGE_SIZE = 32;
+    private static final int MAC_SIZE = 32;
+    // Разные метки для ответа каждой стороны и ключа сессии: ответ одной стороны не подходит за другую
+    private static final byte CONNECTOR_PROOF = 1;
+    private static final byte ACCEPTOR_PROOF = 2;
+    private static final byte SESSION_KEY = 3;
+    private static final String HMAC = "HmacSHA256";
+    private static final String EXAMPLE_SECRET = "change-me";
+
+    private final Logger logger;
+    private final String bind;
+    private final List<String> peerAddresses;
+    private final byte[] secret;
+    private final SecureRandom random = new SecureRandom();
+    private final List<Peer> peers = new ArrayList<>();
+    private final Set<Socket> inbound = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+
+    /**
+     * @param bind  Адрес для входящих соединений ("host:port"), пусто — не слушать
+     * @param peers Адреса остальных серверов ("host:port")
+     */
+    public TcpTransport(Logger logger, String bind, List<String> peers, String secret) {
+        this.logger = logger;
+        this.bind = bind;
+        this.peerAddresses = List.copyOf(peers);
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) throws IOException {
+        String text = new String(secret, StandardCharsets.UTF_8);
+        if (text.isBlank() || text.equals(EXAMPLE_SECRET)) {
+            throw new IllegalStateException("Задайте свой network.tcp.secret: пустой секрет и секрет из примера не принимаются");
+        }
+
+        running = true;
+
+        if (!bind.isEmpty()) {
+            serverSocket = new ServerSocket();
+            serverSocket.bind(parseAddress(bind));
+            Thread.ofPlatform().daemon().name("ChatManager-Bridge-Accept").start(() -> acceptLoop(receiver));
+        }
+
+        for (String address : peerAddresses) {
+            Peer peer = new Peer(parseAddress(address));
+            peers.add(peer);
+            Thread.ofVirtual().name("ChatManager-Bridge-" + address).start(peer::writeLoop);
+        }
+    }
+
+    @Override
+    public void send(byte[] frame) {
+        for (Peer peer : peers) {
+            if (!peer.queue.offer(frame)) {
+                logger.fine("Очередь моста к " + peer.address + " переполнена, кадр отброшен");
+            }
+        }
+    }
+
+    @Override
+    public int getMaxFrameSize() {
+        return MAX_FRAME_SIZE;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(serverSocket);
+        for (Socket socket : inbound) closeQuietly(socket);
+        for (Peer peer : peers) peer.close();
+    }
+
+    private void acceptLoop(Consumer<byte[]> receiver) {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                inbound.add(socket);
+                Thread.ofVirtual().name("ChatManager-Bridge-In").start(() -> readLoop(socket, receiver));
+            } catch (IOException e) {
+                if (running) logger.warning("Ошибка приёма соединения моста: " + e.getMessage());
+            }
+        }
+    }
+
+    private void readLoop(Socket socket, Consumer<byte[]> receiver) {
+        try (socket; DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            byte[] challenge = new byte[CHALLENGE_SIZE];
+            random.nextBytes(challenge);
+            out.write(challenge);
+            out.flush();
+
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            byte[] peerChallenge = new byte[CHALLENGE_SIZE];
+            in.readFully(peerChallenge);
+            byte[] proof = new byte[MAC_SIZE];
+            in.readFully(proof);
+            if (!MessageDigest.isEqual(hmac(secret, CONNECTOR_PROOF, challenge, peerChallenge), proof)) {
+                logger.warning("Соединение моста от " + socket.getRemoteSocketAddress() + " отклонено: неверный секрет");
+                return;
+            }
+            out.write(hmac(secret, ACCEPTOR_PROOF, challenge, peerChallenge));
+            out.flush();
+            socket.setSoTimeout(0);
+
+            Mac mac = mac(hmac(secret, SESSION_KEY, challenge, peerChallenge));
+            byte[] tag = new byte[MAC_SIZE];
+            long sequence = 0;
+            while (running) {
+                int length = in.readInt();
+                if (length <= 0 || length > MAX_FRAME_SIZE) throw new IOException("Некорректная длина кадра: " + length);
+
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                in.readFully(tag);
+                if (!MessageDigest.isEqual(sign(mac, sequence++, frame), tag)) {
+                    logger.warning("Соединение моста от " + socket.getRemoteSocketAddress() + " закрыто: неверная подпись кадра");
+                    return;
+                }
+                receiver.accept(frame);
+            }
+        } catch (IOException e) {
+            // Сосед отключился; он сам переподключится
+        } finally {
+            inbound.remove(socket);
+        }
+    }
+
+    /**
+     * HMAC-SHA256 по ключу от метки и обоих вызовов (сначала вызов принимающей стороны)
+     */
+    private static byte[] hmac(byte[] key, byte label, byte[] acceptorChallenge, byte[] connectorChallenge) throws IOException {
+        Mac mac = mac(key);
+        mac.update(label);
+        mac.update(acceptorChallenge);
+        return mac.doFinal(connectorChallenge);
+    }
+
+    private static byte[] sign(Mac mac, long sequence, byte[] frame) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            mac.update((byte) (sequence >>> shift));
+        }
+        return mac.doFinal(frame);
+    }
+
+    private static Mac mac(byte[] key) throws IOException {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(key, HMAC));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("HMAC недоступен", e);
+        }
+    }
+
+    private static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) throw new IllegalArgumentException("Адрес должен быть в формате host:port: " + address);
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private final class Peer {
+        private final InetSocketAddress address;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private volatile Socket socket;
+
+        private Peer(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        private void writeLoop() {
+            long delay = 1000;
+            while (running) {
+                try (Socket connection = new Socket()) {
+                    socket = connection;
+                    connection.connect(address, CONNECT_TIMEOUT_MS);
+                    connection.setTcpNoDelay(true);
+                    connection.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+                    DataInputStream in = new DataInputStream(connection.getInputStream());
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                    byte[] peerChallenge = new byte[CHALLENGE_SIZE];
+                    in.readFully(peerChallenge);
+
+                    byte[] challenge = new byte[CHALLENGE_SIZE];
+                    random.nextBytes(challenge);
+                    out.write(challenge);
+                    out.write(hmac(secret, CONNECTOR_PROOF, peerChallenge, challenge));
+                    out.flush();
+
+                    // Пока сосед не доказал, что знает секрет, ему не уходит ни одного кадра
+                    byte[] proof = new byte[MAC_SIZE];
+                    in.readFully(proof);
+                    if (!MessageDigest.isEqual(hmac(secret, ACCEPTOR_PROOF, peerChallenge, challenge), proof)) {
+                        logger.warning("Сосед моста " + address + " отклонён: неверный секрет");
+                        throw new IOException("сосед не знает секрет");
+                    }
+                    connection.setSoTimeout(0);
+                    delay = 1000;
+
+                    Mac mac = mac(hmac(secret, SESSION_KEY, peerChallenge, challenge));
+                    long sequence = 0;
+                    while (running) {
+                        byte[] frame = queue.poll(1, TimeUnit.SECONDS);
+                        if (frame == null) continue;
+
+                        // Всё, что накопилось, уходит одной записью
+                        do {
+                            out.writeInt(frame.length);
+                            out.write(frame);
+                            out.write(sign(mac, sequence++, frame));
+                        } while ((frame = queue.poll()) != null);
+                        out.flush();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) {
+                    if (!running) return;
+                    logger.fine("Нет соединения моста с " + address + ": " + e.getMessage());
+                }
+
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+
+        private void close() {
+            closeQuietly(socket);
+            queue.clear();
+        }
+    }
+}
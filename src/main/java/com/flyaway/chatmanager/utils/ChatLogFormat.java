@@ -0,0 +1,132 @@
+package com.flyaway.chatmanager.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Двоичный формат сегментов журнала чата.
+ * Сегмент: magic (int) и версия (byte), затем записи подряд.
+ * Запись: длина тела (int), время (long), вид (byte), UUID (2 long), ник, получатель, текст;
+ * строки — длина (unsigned short) и байты UTF-8.
+ * Оборванная последняя запись (сервер упал во время записи) при чтении просто отбрасывается;
+ * на испорченной записи чтение так же останавливается, прочитанное до неё остаётся.
+ */
+public final class ChatLogFormat {
+
+    public static final int MAGIC = 0x434D4C47; // "CMLG"
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 5;
+
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    private static final int FIXED_BODY_SIZE = 8 + 1 + 16 + 2 * 3;
+
+    private ChatLogFormat() {
+    }
+
+    public static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).put(VERSION);
+    }
+
+    /**
+     * @return false, если в буфере не хватает места; буфер при этом не меняется
+     */
+    public static boolean write(ByteBuffer buffer, Entry entry) {
+        byte[] name = bytes(entry.senderName());
+        byte[] target = bytes(entry.target());
+        byte[] text = bytes(entry.text());
+
+        int bodySize = FIXED_BODY_SIZE + name.length + target.length + text.length;
+        if (buffer.remaining() < 4 + bodySize) return false;
+
+        buffer.putInt(bodySize)
+                .putLong(entry.timestamp())
+                .put((byte) entry.kind().ordinal())
+                .putLong(entry.sender().getMostSignificantBits())
+                .putLong(entry.sender().getLeastSignificantBits());
+        putString(buffer, name);
+        putString(buffer, target);
+        putString(buffer, text);
+        return true;
+    }
+
+    /**
+     * Наибольший размер записи в байтах
+     */
+    public static int maxRecordSize() {
+        return 4 + FIXED_BODY_SIZE + 3 * MAX_STRING_BYTES;
+    }
+
+    /**
+     * Тело читается из среза ровно по его длине, поэтому испорченная запись не заходит в следующую
+     *
+     * @return Следующая запись или null, если записи кончились, последняя оборвана или запись испорчена;
+     * позиция буфера сдвигается только после целой записи
+     */
+    public static Entry read(ByteBuffer buffer) {
+        if (buffer.remaining() < 4) return null;
+
+        int bodySize = buffer.getInt(buffer.position());
+        if (bodySize < FIXED_BODY_SIZE || bodySize > buffer.remaining() - 4) return null;
+        ByteBuffer body = buffer.slice(buffer.position() + 4, bodySize);
+
+        long timestamp = body.getLong();
+        int kind = body.get();
+        UUID sender = new UUID(body.getLong(), body.getLong());
+        String name = getString(body);
+        String target = name == null ? null : getString(body);
+        String text = target == null ? null : getString(body);
+        // Строки должны занять тело целиком
+        if (text == null || body.hasRemaining()) return null;
+
+        buffer.position(buffer.position() + 4 + bodySize);
+        Kind[] kinds = Kind.values();
+        return new Entry(timestamp, kind >= 0 && kind < kinds.length ? kinds[kind] : Kind.UNKNOWN, sender, name, target, text);
+    }
+
+    public static boolean readHeader(ByteBuffer buffer) {
+        return buffer.remaining() >= HEADER_SIZE && buffer.getInt() == MAGIC && buffer.get() == VERSION;
+    }
+
+    private static byte[] bytes(String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_STRING_BYTES) return bytes;
+
+        // Обрезаем по границе символа UTF-8
+        int end = MAX_STRING_BYTES;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) end--;
+        byte[] truncated = new byte[end];
+        System.arraycopy(bytes, 0, truncated, 0, end);
+        return truncated;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    /**
+     * @return null, если длина строки больше остатка тела
+     */
+    private static String getString(ByteBuffer buffer) {
+        if (buffer.remaining() < 2) return null;
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length > buffer.remaining()) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public enum Kind {
+        LOCAL,
+        GLOBAL,
+        PRIVATE,
+        UNKNOWN
+    }
+
+    /**
+     * @param target Получатель личного сообщения, иначе пустая строка
+     * @param text   Текст, как его написал игрок
+     */
+    public record Entry(long timestamp, Kind kind, UUID sender, String senderName, String target, String text) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.flyaway.chatmanager.utils;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Чтение сегментов журнала чата без сервера: сегмент отображается в память и разбирается по записям.
+ * Можно запустить из jar плагина: java -cp ChatManager.jar com.flyaway.chatmanager.utils.ChatLogReader папка [текст]
+ */
+public final class ChatLogReader {
+
+    public static final String SEGMENT_PREFIX = "chat-";
+    public static final String SEGMENT_SUFFIX = ".log";
+
+    private ChatLogReader() {
+    }
+
+    /**
+     * Сегменты от старых к новым (имя начинается со времени создания)
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return List.of();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(ChatLogReader::isSegment).sorted().toList();
+        }
+    }
+
+    public static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Все записи сегмента по порядку
+     */
+    public static List<ChatLogFormat.Entry> read(Path segment) throws IOException {
+        List<ChatLogFormat.Entry> entries = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!ChatLogFormat.readHeader(buffer)) return entries;
+
+            ChatLogFormat.Entry entry;
+            while ((entry = ChatLogFormat.read(buffer)) != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Последние записи, подходящие под фильтр, от старых к новым
+     *
+     * @param limit Сколько записей вернуть
+     */
+    public static List<ChatLogFormat.Entry> grep(Path directory, Predicate<ChatLogFormat.Entry> filter, int limit) throws IOException {
+        List<ChatLogFormat.Entry> result = new ArrayList<>(limit);
+        List<Path> segments = segments(directory);
+
+        // С самого нового сегмента, пока не наберём limit
+        for (int i = segments.size() - 1; i >= 0 && result.size() < limit; i--) {
+            List<ChatLogFormat.Entry> entries = read(segments.get(i));
+            for (int j = entries.size() - 1; j >= 0 && result.size() < limit; j--) {
+                if (filter.test(entries.get(j))) result.add(entries.get(j));
+            }
+        }
+
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Фильтр по нику отправителя или получателя и по подстроке текста, без учёта регистра
+     *
+     * @param player Ник или null
+     * @param text   Подстрока или null
+     */
+    public static Predicate<ChatLogFormat.Entry> filter(String player, String text) {
+        String needle = text == null ? null : text.toLowerCase(Locale.ROOT);
+        return entry -> (player == null || player.equalsIgnoreCase(entry.senderName()) || player.equalsIgnoreCase(entry.target()))
+                && (needle == null || entry.text().toLowerCase(Locale.ROOT).contains(needle));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Использование: ChatLogReader <папка журнала> [текст]");
+            return;
+        }
+
+        Path directory = Path.of(args[0]);
+        String text = args.length > 1 ? String.join(" ", List.of(args).subList(1, args.length)) : null;
+        Predicate<ChatLogFormat.Entry> filter = filter(null, text);
+        SimpleDateFormat time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        for (Path segment : segments(directory)) {
+            for (ChatLogFormat.Entry entry : read(segment)) {
+                if (!filter.test(entry)) continue;
+                System.out.println(time.format(new Date(entry.timestamp())) + " [" + entry.kind() + "] "
+                        + entry.senderName() + (entry.target().isEmpty() ? "" : " -> " + entry.target())
+                        + ": " + entry.text());
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.flyaway.chatmanager.utils;
+
+/**
+ * Фильтр цветов и форматирования в сообщении игрока по его правам.
+ * Права сворачиваются в битовую маску, после чего текст проходится один раз:
+ * разрешённые legacy-коды переводятся в теги MiniMessage, запрещённые коды и теги вырезаются.
+ */
+public final class ColorPermissionFilter {
+
+    // Все цвета, форматы и теги MiniMessage без ограничений
+    public static final int ALL = 1;
+    // Теги MiniMessage и hex-цвета (&#RRGGBB)
+    public static final int ADVANCED = 1 << 1;
+    // Цвета &0-&9, &a-&f
+    public static final int BASIC = 1 << 2;
+    public static final int ITALIC = 1 << 3;
+    public static final int BOLD = 1 << 4;
+
+    private ColorPermissionFilter() {
+    }
+
+    /**
+     * Фильтрует текст по маске прав
+     *
+     * @param mask Комбинация {@link #ALL}, {@link #ADVANCED}, {@link #BASIC}, {@link #ITALIC}, {@link #BOLD}
+     */
+    public static String apply(String text, int mask) {
+        if ((mask & ALL) != 0) {
+            return LegacyColorTranslator.translate(text);
+        }
+
+        boolean tags = (mask & ADVANCED) != 0;
+        int length = text.length();
+        StringBuilder out = null;
+        int copied = 0;
+        int i = 0;
+
+        while (i < length) {
+            char c = text.charAt(i);
+            int skip = 0;
+            String replacement = null;
+
+            if (c == '<' && !tags) {
+                // То же, что <[^>]+>
+                int close = text.indexOf('>', i + 1);
+                if (close > i + 1) skip = close + 1 - i;
+            } else if (c == '&' && i + 1 < length) {
+                char code = text.charAt(i + 1);
+                String tag = LegacyColorTranslator.tagFor(code);
+                if (tag != null) {
+                    skip = 2;
+                    if (isAllowed(code, mask)) replacement = tag;
+                } else if (LegacyColorTranslator.hexLength(text, i) > 0) {
+                    skip = 8;
+                    if (tags) replacement = "<" + text.substring(i + 1, i + 8) + ">";
+                }
+            }
+
+            if (skip == 0) {
+                i++;
+                continue;
+            }
+
+            // Строка копируется только при первой замене
+            if (out == null) out = new StringBuilder(length + 32);
+            out.append(text, copied, i);
+            if (replacement != null) out.append(replacement);
+            i += skip;
+            copied = i;
+        }
+
+        if (out == null) return text;
+        return out.append(text, copied, length).toString();
+    }
+
+    private static boolean isAllowed(char code, int mask) {
+        return switch (code) {
+            case 'o' -> (mask & ITALIC) != 0;
+            case 'l' -> (mask & BOLD) != 0;
+            // &m, &n, &k, &r — только с полным доступом
+            case 'm', 'n', 'k', 'r' -> false;
+            default -> (mask & BASIC) != 0;
+        };
+    }
+}
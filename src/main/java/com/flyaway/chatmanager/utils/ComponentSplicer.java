@@ -0,0 +1,70 @@
+package com.flyaway.chatmanager.utils;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Перестраивает дерево компонентов за один обход, вставляя сразу все замены.
+ * Совпадения ищутся в тексте каждого TextComponent, как и у Component.replaceText.
+ */
+public final class ComponentSplicer {
+
+    private ComponentSplicer() {
+    }
+
+    public static Component splice(Component component, SpanFinder finder) {
+        List<Component> children = component.children();
+        List<Component> newChildren = null;
+
+        for (int i = 0; i < children.size(); i++) {
+            Component child = children.get(i);
+            Component replaced = splice(child, finder);
+            if (replaced != child) {
+                if (newChildren == null) newChildren = new ArrayList<>(children);
+                newChildren.set(i, replaced);
+            }
+        }
+
+        Component result = newChildren == null ? component : component.children(newChildren);
+        if (!(result instanceof TextComponent text) || text.content().isEmpty()) {
+            return result;
+        }
+
+        String content = text.content();
+        List<Span> spans = new ArrayList<>(2);
+        finder.find(content, (start, end, replacement) -> spans.add(new Span(start, end, replacement)));
+        if (spans.isEmpty()) return result;
+
+        // Первый литерал остаётся содержимым узла, замены и остальные литералы идут детьми перед старыми детьми
+        List<Component> parts = new ArrayList<>(spans.size() * 2 + result.children().size());
+        int pos = spans.get(0).start();
+        for (Span span : spans) {
+            if (span.start() > pos) parts.add(Component.text(content.substring(pos, span.start())));
+            parts.add(span.replacement());
+            pos = span.end();
+        }
+        if (pos < content.length()) parts.add(Component.text(content.substring(pos)));
+        parts.addAll(result.children());
+
+        return text.content(content.substring(0, spans.get(0).start())).children(parts);
+    }
+
+    @FunctionalInterface
+    public interface SpanFinder {
+        /**
+         * Сообщает о заменах в тексте по возрастанию позиции, без пересечений.
+         */
+        void find(String text, SpanSink sink);
+    }
+
+    @FunctionalInterface
+    public interface SpanSink {
+        void accept(int start, int end, Component replacement);
+    }
+
+    private record Span(int start, int end, Component replacement) {
+    }
+}
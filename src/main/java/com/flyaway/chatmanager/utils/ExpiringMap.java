@@ -0,0 +1,78 @@
+package com.flyaway.chatmanager.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Потокобезопасная карта с истечением после записи и ограничением по количеству.
+ * Записи хранятся в LinkedHashMap в порядке записи: повторная запись ключа переносит его в хвост,
+ * а удаление убирает узел сразу, поэтому заменённые значения не держатся до конца своего срока.
+ * При записи просроченные и лишние снимаются с головы за амортизированное O(1); полная
+ * очистка (expire) проходит по всем записям и находит просроченные в любом месте, например
+ * после того как перезагрузка конфига сократила время жизни. Чтение проверяет срок точно.
+ * Все операции под одной блокировкой: они короткие и не зовут внешний код.
+ */
+public final class ExpiringMap<K, V> {
+
+    private final LinkedHashMap<K, Node<V>> map = new LinkedHashMap<>();
+
+    /**
+     * Записывает значение, заменяя предыдущее, и сразу вытесняет просроченные и лишние записи
+     *
+     * @param ttlMillis  Время жизни записи
+     * @param maxEntries Максимум записей; самые старые вытесняются первыми
+     */
+    public synchronized void put(K key, V value, long ttlMillis, int maxEntries) {
+        long now = System.currentTimeMillis();
+        // remove + put, чтобы ключ переехал в хвост порядка записи
+        map.remove(key);
+        map.put(key, new Node<>(value, now + ttlMillis));
+
+        Iterator<Node<V>> iterator = map.values().iterator();
+        while (iterator.hasNext()) {
+            Node<V> head = iterator.next();
+            if (head.expiresAt > now && map.size() <= maxEntries) break;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Значение или null, если его нет или срок уже истёк
+     */
+    public synchronized V get(K key) {
+        Node<V> node = map.get(key);
+        if (node == null) return null;
+
+        if (node.expiresAt <= System.currentTimeMillis()) {
+            map.remove(key);
+            return null;
+        }
+        return node.value;
+    }
+
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    /**
+     * Удаляет все просроченные записи
+     */
+    public synchronized void expire() {
+        long now = System.currentTimeMillis();
+        map.values().removeIf(node -> node.expiresAt <= now);
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    /**
+     * Количество записей, включая ещё не вытесненные просроченные
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    private record Node<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.flyaway.chatmanager.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Перевод legacy-кодов (&a, &l, &#RRGGBB) в теги MiniMessage за один проход по строке.
+ * Код ищется по таблице, индексированной символом после '&'.
+ * Результат собирается в переиспользуемом StringBuilder из небольшого пула: отрисовка идёт
+ * и в виртуальных потоках, поэтому ThreadLocal тут ничего бы не переиспользовал.
+ */
+public final class LegacyColorTranslator {
+
+    private static final String[] TAGS = new String[128];
+
+    private static final int POOL_SIZE = 16;
+    // Слишком выросшие буферы не возвращаются в пул, чтобы не держать память
+    private static final int MAX_POOLED_CAPACITY = 4096;
+    private static final AtomicReferenceArray<StringBuilder> POOL = new AtomicReferenceArray<>(POOL_SIZE);
+
+    static {
+        TAGS['0'] = "<black>";
+        TAGS['1'] = "<dark_blue>";
+        TAGS['2'] = "<dark_green>";
+        TAGS['3'] = "<dark_aqua>";
+        TAGS['4'] = "<dark_red>";
+        TAGS['5'] = "<dark_purple>";
+        TAGS['6'] = "<gold>";
+        TAGS['7'] = "<gray>";
+        TAGS['8'] = "<dark_gray>";
+        TAGS['9'] = "<blue>";
+        TAGS['a'] = "<green>";
+        TAGS['b'] = "<aqua>";
+        TAGS['c'] = "<red>";
+        TAGS['d'] = "<light_purple>";
+        TAGS['e'] = "<yellow>";
+        TAGS['f'] = "<white>";
+        TAGS['l'] = "<bold>";
+        TAGS['o'] = "<italic>";
+        TAGS['n'] = "<underlined>";
+        TAGS['m'] = "<strikethrough>";
+        TAGS['k'] = "<obfuscated>";
+        TAGS['r'] = "<reset>";
+    }
+
+    private LegacyColorTranslator() {
+    }
+
+    /**
+     * Тег MiniMessage для символа после '&' или null, если это не legacy-код
+     */
+    public static String tagFor(char code) {
+        return code < TAGS.length ? TAGS[code] : null;
+    }
+
+    /**
+     * Длина hex-кода &#RRGGBB, начинающегося с позиции '&', или 0
+     */
+    public static int hexLength(String text, int ampersand) {
+        if (ampersand + 8 > text.length() || text.charAt(ampersand + 1) != '#') return 0;
+        for (int i = ampersand + 2; i < ampersand + 8; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) return 0;
+        }
+        return 8;
+    }
+
+    public static String translate(String text) {
+        int first = text.indexOf('&');
+        if (first < 0) return text;
+
+        int slot = (int) (Thread.currentThread().threadId() & (POOL_SIZE - 1));
+        StringBuilder result = POOL.getAndSet(slot, null);
+        if (result == null) {
+            result = new StringBuilder(Math.max(256, text.length() + 32));
+        }
+
+        result.append(text, 0, first);
+        appendTranslated(result, text, first);
+        String translated = result.toString();
+
+        if (result.capacity() <= MAX_POOLED_CAPACITY) {
+            result.setLength(0);
+            POOL.compareAndSet(slot, null, result);
+        }
+        return translated;
+    }
+
+    /**
+     * Дописывает в builder текст начиная с позиции from, заменяя legacy-коды тегами
+     */
+    public static void appendTranslated(StringBuilder out, String text, int from) {
+        int length = text.length();
+        int i = from;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c != '&' || i + 1 >= length) {
+                out.append(c);
+                i++;
+                continue;
+            }
+
+            String tag = tagFor(text.charAt(i + 1));
+            if (tag != null) {
+                out.append(tag);
+                i += 2;
+            } else if (hexLength(text, i) > 0) {
+                out.append('<').append(text, i + 1, i + 8).append('>');
+                i += 8;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.flyaway.chatmanager.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Формат сообщения, заранее разобранный на литералы и слоты вида {name}.
+ * Заполнение — один проход со StringBuilder нужного размера, без повторных поисков по строке.
+ */
+public final class MessageTemplate {
+
+    private final String[] literals;
+    private final int[] slots;
+    private final int literalLength;
+
+    private MessageTemplate(List<String> literals, List<Integer> slots) {
+        this(literals.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private MessageTemplate(String[] literals, int[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+
+        int length = 0;
+        for (String literal : this.literals) length += literal.length();
+        this.literalLength = length;
+    }
+
+    /**
+     * Разбирает формат на литералы и слоты.
+     *
+     * @param format    Строка формата
+     * @param slotNames Имена слотов без фигурных скобок, порядок задаёт порядок значений в {@link #fill}
+     */
+    public static MessageTemplate compile(String format, String... slotNames) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < format.length()) {
+            int slot = format.charAt(i) == '{' ? slotAt(format, i, slotNames) : -1;
+            if (slot < 0) {
+                literal.append(format.charAt(i++));
+                continue;
+            }
+
+            literals.add(literal.toString());
+            literal.setLength(0);
+            slots.add(slot);
+            i += slotNames[slot].length() + 2;
+        }
+        literals.add(literal.toString());
+
+        return new MessageTemplate(literals, slots);
+    }
+
+    /**
+     * Вставляет этот шаблон во внешний формат на место каждого {slot}.
+     * Остальной текст внешнего формата остаётся литералом.
+     */
+    public MessageTemplate wrap(String outer, String slot) {
+        String token = "{" + slot + "}";
+        List<String> newLiterals = new ArrayList<>();
+        List<Integer> newSlots = new ArrayList<>();
+
+        StringBuilder literal = new StringBuilder();
+        int from = 0;
+        int at;
+        while ((at = outer.indexOf(token, from)) >= 0) {
+            literal.append(outer, from, at).append(literals[0]);
+            for (int i = 0; i < slots.length; i++) {
+                newLiterals.add(literal.toString());
+                literal.setLength(0);
+                newSlots.add(slots[i]);
+                literal.append(literals[i + 1]);
+            }
+            from = at + token.length();
+        }
+        literal.append(outer, from, outer.length());
+        newLiterals.add(literal.toString());
+
+        return new MessageTemplate(newLiterals, newSlots);
+    }
+
+    /**
+     * Делит шаблон по слоту на часть до него и часть после.
+     * Номера остальных слотов сохраняются, так что обе части заполняются тем же массивом значений.
+     *
+     * @return {до, после} или null, если слот встречается не ровно один раз
+     */
+    public MessageTemplate[] split(int slot) {
+        int at = -1;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != slot) continue;
+            if (at >= 0) return null;
+            at = i;
+        }
+        if (at < 0) return null;
+
+        return new MessageTemplate[]{
+                new MessageTemplate(Arrays.copyOfRange(literals, 0, at + 1), Arrays.copyOfRange(slots, 0, at)),
+                new MessageTemplate(Arrays.copyOfRange(literals, at + 1, literals.length), Arrays.copyOfRange(slots, at + 1, slots.length))
+        };
+    }
+
+    /**
+     * true, если шаблон содержит слот с этим номером
+     */
+    public boolean hasSlot(int slot) {
+        for (int used : slots) {
+            if (used == slot) return true;
+        }
+        return false;
+    }
+
+    /**
+     * true, если в шаблоне нет ни одного слота
+     */
+    public boolean isConstant() {
+        return slots.length == 0;
+    }
+
+    public String fill(String... values) {
+        int length = literalLength;
+        for (int slot : slots) length += values[slot].length();
+
+        StringBuilder builder = new StringBuilder(length);
+        builder.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(values[slots[i]]).append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    private static int slotAt(String format, int index, String[] slotNames) {
+        for (int slot = 0; slot < slotNames.length; slot++) {
+            String name = slotNames[slot];
+            int end = index + name.length() + 1;
+            if (end < format.length() && format.charAt(end) == '}' && format.startsWith(name, index + 1)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,125 @@
+package com.flyaway.chatmanager.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Лёгкий просмотр тегов MiniMessage без разбора в компоненты: какие теги остаются открытыми в конце текста.
+ * Нужен, чтобы решить, можно ли разбирать шапку чата отдельно от сообщения.
+ * Обычный стиль (цвет, форматирование, click, hover, шрифт) переносится на сообщение как Style,
+ * а градиент, радуга и переход окрашивают текст посимвольно и при раздельном разборе сообщение не покроют.
+ */
+public final class MiniMessageTags {
+
+    // Теги, которые меняют текст по всей длине, а не задают один стиль
+    private static final Set<String> SPAN_TAGS = Set.of("gradient", "rainbow", "transition", "pride");
+    // Теги без закрывающей пары: они ничего не оставляют открытым
+    private static final Set<String> STANDALONE_TAGS = Set.of("newline", "br", "lang", "tr", "translate",
+            "lang_or", "tr_or", "translate_or", "key", "keybind", "selector", "sel", "score", "nbt", "data");
+
+    private MiniMessageTags() {
+    }
+
+    public enum Open {
+        // Все теги закрыты
+        NONE,
+        // Открыт только обычный стиль
+        STYLE,
+        // Открыт градиент, радуга или переход
+        SPAN
+    }
+
+    /**
+     * Что остаётся открытым после текста
+     */
+    public static Open openAtEnd(String text) {
+        List<String> open = new ArrayList<>();
+        int length = text.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                // \< и \\ — экранированные символы, не теги
+                i += 2;
+                continue;
+            }
+            if (c != '<') {
+                i++;
+                continue;
+            }
+
+            int end = tagEnd(text, i + 1);
+            if (end < 0) {
+                // Одиночный '<' — просто текст
+                i++;
+                continue;
+            }
+
+            String tag = text.substring(i + 1, end);
+            i = end + 1;
+            if (tag.isEmpty() || tag.endsWith("/")) continue;
+
+            if (tag.charAt(0) == '/') {
+                // Закрывающий тег закрывает парный и все открытые после него
+                int index = open.lastIndexOf(name(tag.substring(1)));
+                if (index >= 0) open.subList(index, open.size()).clear();
+                continue;
+            }
+
+            String name = name(tag);
+            if (name.equals("reset")) {
+                open.clear();
+            } else if (!STANDALONE_TAGS.contains(name)) {
+                open.add(name);
+            }
+        }
+
+        if (open.isEmpty()) return Open.NONE;
+        for (String name : open) {
+            if (SPAN_TAGS.contains(name)) return Open.SPAN;
+        }
+        return Open.STYLE;
+    }
+
+    /**
+     * true, если в тексте может быть закрывающий тег или reset, то есть он способен закрыть теги перед ним
+     */
+    public static boolean mayCloseTags(String text) {
+        int at = text.indexOf('<');
+        while (at >= 0) {
+            if (text.startsWith("/", at + 1) || text.regionMatches(true, at + 1, "reset", 0, 5)) return true;
+            at = text.indexOf('<', at + 1);
+        }
+        return false;
+    }
+
+    // Имя тега без аргументов и отрицания (<!bold>), в нижнем регистре
+    private static String name(String tag) {
+        int colon = tag.indexOf(':');
+        String name = colon >= 0 ? tag.substring(0, colon) : tag;
+        if (name.startsWith("!")) name = name.substring(1);
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // Позиция '>' с учётом аргументов в кавычках, -1 — тег не закрыт
+    private static int tagEnd(String text, int from) {
+        char quote = 0;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') i++;
+                else if (c == quote) quote = 0;
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            } else if (c == '<') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,164 @@
+package com.flyaway.chatmanager.utils;
+
+import java.util.*;
+
+/**
+ * Неизменяемый автомат Ахо-Корасик по никам игроков.
+ * За один линейный проход по тексту находит все вхождения ников
+ * и отдаёт самые левые/самые длинные непересекающиеся совпадения.
+ */
+public final class NameMatcher {
+
+    private static final int MAX_NAME_LENGTH = 0xFF;
+    private static final NameMatcher EMPTY = new NameMatcher(Collections.emptyList());
+
+    private final String[] names;
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    private final int[] terminal;
+    private final int[] dictLink;
+
+    private NameMatcher(Collection<String> source) {
+        List<String> patterns = new ArrayList<>();
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> terminals = new ArrayList<>();
+        trie.add(new HashMap<>());
+        terminals.add(-1);
+
+        for (String name : source) {
+            if (name == null || name.isEmpty() || name.length() > MAX_NAME_LENGTH) continue;
+
+            int node = 0;
+            for (int i = 0; i < name.length(); i++) {
+                Integer next = trie.get(node).get(name.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    terminals.add(-1);
+                    trie.get(node).put(name.charAt(i), next);
+                }
+                node = next;
+            }
+
+            if (terminals.get(node) == -1) {
+                terminals.set(node, patterns.size());
+                patterns.add(name);
+            }
+        }
+
+        int size = trie.size();
+        this.names = patterns.toArray(new String[0]);
+        this.edgeChars = new char[size][];
+        this.edgeTargets = new int[size][];
+        this.fail = new int[size];
+        this.terminal = new int[size];
+        this.dictLink = new int[size];
+
+        for (int node = 0; node < size; node++) {
+            Map<Character, Integer> edges = trie.get(node);
+            char[] chars = new char[edges.size()];
+            int i = 0;
+            for (char c : edges.keySet()) chars[i++] = c;
+            Arrays.sort(chars);
+
+            int[] targets = new int[chars.length];
+            for (i = 0; i < chars.length; i++) targets[i] = edges.get(chars[i]);
+
+            edgeChars[node] = chars;
+            edgeTargets[node] = targets;
+            terminal[node] = terminals.get(node);
+        }
+
+        // BFS: ссылки неудач и словарные ссылки на ближайший терминальный суффикс
+        dictLink[0] = -1;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[0]) {
+            fail[child] = 0;
+            dictLink[child] = -1;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            char[] chars = edgeChars[node];
+            int[] targets = edgeTargets[node];
+
+            for (int i = 0; i < chars.length; i++) {
+                int child = targets[i];
+                int f = fail[node];
+                int next;
+                while ((next = step(f, chars[i])) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = next < 0 ? 0 : next;
+                dictLink[child] = terminal[fail[child]] >= 0 ? fail[child] : dictLink[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    public static NameMatcher empty() {
+        return EMPTY;
+    }
+
+    public static NameMatcher of(Collection<String> names) {
+        return names.isEmpty() ? EMPTY : new NameMatcher(names);
+    }
+
+    public boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    /**
+     * Передаёт в consumer самые левые/самые длинные непересекающиеся вхождения ников
+     * в порядке их появления в тексте.
+     */
+    public void forEachMatch(String text, MatchConsumer consumer) {
+        if (names.length == 0 || text.isEmpty()) return;
+
+        long[] matches = new long[8];
+        int count = 0;
+        int state = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = step(state, c)) < 0 && state != 0) {
+                state = fail[state];
+            }
+            state = next < 0 ? 0 : next;
+
+            for (int node = terminal[state] >= 0 ? state : dictLink[state]; node > 0; node = dictLink[node]) {
+                int index = terminal[node];
+                int length = names[index].length();
+                if (count == matches.length) matches = Arrays.copyOf(matches, count * 2);
+                // start по возрастанию, при равенстве — более длинное совпадение первым
+                matches[count++] = ((long) (i + 1 - length) << 32) | ((long) (MAX_NAME_LENGTH - length) << 24) | index;
+            }
+        }
+
+        if (count == 0) return;
+        Arrays.sort(matches, 0, count);
+
+        int lastEnd = 0;
+        for (int i = 0; i < count; i++) {
+            int start = (int) (matches[i] >>> 32);
+            String name = names[(int) (matches[i] & 0xFFFFFF)];
+            if (start < lastEnd) continue;
+
+            consumer.accept(start, start + name.length(), name);
+            lastEnd = start + name.length();
+        }
+    }
+
+    private int step(int node, char c) {
+        int i = Arrays.binarySearch(edgeChars[node], c);
+        return i < 0 ? -1 : edgeTargets[node][i];
+    }
+
+    @FunctionalInterface
+    public interface MatchConsumer {
+        void accept(int start, int end, String name);
+    }
+}
@@ -0,0 +1,31 @@
+package com.flyaway.chatmanager.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Токен-бакет в виде GCRA: всё состояние — одно «теоретическое время прихода» в AtomicLong.
+ * Проверка без блокировок и аллокаций, параметры можно менять между вызовами.
+ */
+public final class RateBucket {
+
+    // Ещё не было ни одного события: max(tat, now) даст now при любом знаке System.nanoTime()
+    private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param now           Текущее время в наносекундах (System.nanoTime())
+     * @param intervalNanos Интервал между событиями при постоянной скорости; 0 — без ограничения
+     * @param burst         Сколько событий можно подряд после простоя
+     * @return true, если событие разрешено и учтено
+     */
+    public boolean tryAcquire(long now, long intervalNanos, int burst) {
+        if (intervalNanos <= 0) return true;
+
+        long tolerance = intervalNanos * Math.max(1, burst);
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + intervalNanos;
+            if (next - now > tolerance) return false;
+            if (tat.compareAndSet(current, next)) return true;
+        }
+    }
+}
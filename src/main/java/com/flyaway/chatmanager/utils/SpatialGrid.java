@@ -0,0 +1,144 @@
+package com.flyaway.chatmanager.utils;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Сетка по X/Z с ячейками 2^cellShift блоков для поиска объектов в радиусе.
+ * Обновляется из одного потока (основной поток сервера), читается из любых.
+ */
+public final class SpatialGrid<T> {
+
+    private final int cellShift;
+    private final Map<Object, Map<Long, Set<Entry<T>>>> worlds = new ConcurrentHashMap<>();
+    private final Map<T, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    public SpatialGrid(int cellShift) {
+        this.cellShift = cellShift;
+    }
+
+    /**
+     * Записывает новую позицию. Перекладывает объект между ячейками только при смене ячейки или мира.
+     */
+    public void update(T value, Object world, double x, double y, double z) {
+        long cell = cellKey(floorCell(x), floorCell(z));
+        Entry<T> entry = entries.get(value);
+
+        if (entry != null && world.equals(entry.world) && entry.cell == cell) {
+            entry.x = x;
+            entry.y = y;
+            entry.z = z;
+            return;
+        }
+
+        if (entry != null) {
+            removeFromCell(entry);
+        } else {
+            entry = new Entry<>(value);
+        }
+
+        entry.world = world;
+        entry.cell = cell;
+        entry.x = x;
+        entry.y = y;
+        entry.z = z;
+        worlds.computeIfAbsent(world, w -> new ConcurrentHashMap<>())
+                .computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet())
+                .add(entry);
+        entries.put(value, entry);
+    }
+
+    public void remove(T value) {
+        Entry<T> entry = entries.remove(value);
+        if (entry != null) {
+            removeFromCell(entry);
+        }
+    }
+
+    public boolean contains(T value) {
+        return entries.containsKey(value);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Обходит объекты в радиусе вокруг уже отслеживаемого объекта (включая его самого).
+     *
+     * @return false, если center не отслеживается
+     */
+    public boolean forEachNear(T center, double radius, Consumer<T> action) {
+        Entry<T> entry = entries.get(center);
+        if (entry == null) return false;
+
+        forEachWithin(entry.world, entry.x, entry.y, entry.z, radius, action);
+        return true;
+    }
+
+    /**
+     * Обходит объекты, чьё расстояние до точки не больше radius (сравнение по квадрату расстояния).
+     */
+    public void forEachWithin(Object world, double x, double y, double z, double radius, Consumer<T> action) {
+        Map<Long, Set<Entry<T>>> cells = worlds.get(world);
+        if (cells == null) return;
+
+        double radiusSquared = radius * radius;
+        int minX = floorCell(x - radius);
+        int maxX = floorCell(x + radius);
+        int minZ = floorCell(z - radius);
+        int maxZ = floorCell(z + radius);
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                Set<Entry<T>> cell = cells.get(cellKey(cx, cz));
+                if (cell == null) continue;
+
+                for (Entry<T> entry : cell) {
+                    if (!world.equals(entry.world)) continue;
+
+                    double dx = entry.x - x;
+                    double dy = entry.y - y;
+                    double dz = entry.z - z;
+                    if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                        action.accept(entry.value);
+                    }
+                }
+            }
+        }
+    }
+
+    private void removeFromCell(Entry<T> entry) {
+        Map<Long, Set<Entry<T>>> cells = worlds.get(entry.world);
+        if (cells == null) return;
+
+        cells.computeIfPresent(entry.cell, (key, cell) -> {
+            cell.remove(entry);
+            return cell.isEmpty() ? null : cell;
+        });
+    }
+
+    private int floorCell(double coordinate) {
+        return (int) Math.floor(coordinate) >> cellShift;
+    }
+
+    private static long cellKey(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        // Пишутся только из основного потока; читатели могут увидеть позицию на тик раньше
+        private volatile Object world;
+        private volatile long cell;
+        private volatile double x;
+        private volatile double y;
+        private volatile double z;
+
+        private Entry(T value) {
+            this.value = value;
+        }
+    }
+}